@@ -0,0 +1,41 @@
+package com.example.account.benchmark;
+
+import com.example.account.service.AccountNumberAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * blockSize=1 이면 계좌번호마다 Redis 를 한 번씩 호출하므로 블록 예약의 효과를 비교할 수 있다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class AccountNumberAllocatorBenchmark {
+    @Param({"1", "100", "1000"})
+    private int blockSize;
+
+    private ConfigurableApplicationContext context;
+    private AccountNumberAllocator allocator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("account.number.block-size=" + blockSize);
+        allocator = context.getBean(AccountNumberAllocator.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String allocate() {
+        return allocator.allocate();
+    }
+}
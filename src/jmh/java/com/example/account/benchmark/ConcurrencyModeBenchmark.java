@@ -0,0 +1,74 @@
+package com.example.account.benchmark;
+
+import com.example.account.controller.TransactionController;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 락 모드, optimistic 모드, single-writer 모드를 계좌 쏠림 정도와 커밋 방식(건별/group)별로 비교한다
+ * 컨트롤러 빈을 직접 호출해서 @AccountLock 에 걸린 Aspect 까지 함께 측정한다
+ * hotRatio : 전체 요청 중 0번 계좌에 몰리는 비율 (0.1 이면 10개 계좌에 고르게 퍼진 것과 같다)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ConcurrencyModeBenchmark {
+    private static final long USER_ID = 1L;
+    private static final int ACCOUNTS = 10; // 사용자당 최대 계좌 수
+
+    @Param({"lock", "optimistic", "single-writer"})
+    private String concurrencyMode;
+
+    @Param({"0.1", "0.5", "0.9"})
+    private double hotRatio;
+
+    @Param({"single", "group"})
+    private String commitMode;
+
+    private ConfigurableApplicationContext context;
+    private TransactionController transactionController;
+    private final String[] accountNumbers = new String[ACCOUNTS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(
+                "account.concurrency.mode=" + concurrencyMode,
+                "account.commit.mode=" + commitMode);
+        transactionController = context.getBean(TransactionController.class);
+        AccountService accountService = context.getBean(AccountService.class);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNumbers[i] = accountService.createAccount(USER_ID, Long.MAX_VALUE / 2).getAccountNumber();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void useBalance(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String accountNumber = random.nextDouble() < hotRatio
+                ? accountNumbers[0]
+                : accountNumbers[random.nextInt(ACCOUNTS)];
+        try {
+            blackhole.consume(transactionController.useBalance(
+                    new UseBalance.Request(USER_ID, accountNumber, 10L)).join()));
+        } catch (AccountException | CompletionException e) { // 락 대기 초과, 재시도 소진도 결과에 포함한다
+            blackhole.consume(e);
+        }
+    }
+}
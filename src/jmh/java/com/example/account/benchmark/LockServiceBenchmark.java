@@ -0,0 +1,57 @@
+package com.example.account.benchmark;
+
+import com.example.account.service.LockService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * lock/unlock 비용을 락 구현별로 측정한다, 스레드마다 다른 계좌를 써서 경합 없이 측정한다
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LockServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Context {
+        @Param({"redis", "local"})
+        private String lockMode;
+
+        private ConfigurableApplicationContext context;
+        private LockService lockService;
+        private final AtomicInteger accountSequence = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkContexts.start("account.lock.mode=" + lockMode);
+            lockService = context.getBean(LockService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Account {
+        private String accountNumber;
+
+        @Setup(Level.Trial)
+        public void setUp(Context context) {
+            accountNumber = String.valueOf(1000000000L + context.accountSequence.getAndIncrement());
+        }
+    }
+
+    @Benchmark
+    public void lockAndUnlock(Context context, Account account) {
+        context.lockService.lock(account.accountNumber);
+        context.lockService.unlock(account.accountNumber);
+    }
+}
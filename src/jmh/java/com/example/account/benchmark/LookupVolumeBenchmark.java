@@ -0,0 +1,94 @@
+package com.example.account.benchmark;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 거래 내역이 늘어나도 계좌번호/거래번호 조회 시간이 일정한지 확인한다 (인덱스가 없으면 행 수에 비례해서 느려진다)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupVolumeBenchmark {
+    private static final long FIRST_ID = 1_000_000_000L; // 시퀀스가 발급하는 id 와 겹치지 않도록
+    private static final int INSERT_CHUNK = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int transactions;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private int accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start();
+        accountRepository = context.getBean(AccountRepository.class);
+        transactionRepository = context.getBean(TransactionRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        accounts = Math.max(1, transactions / 100);
+        List<Object[]> rows = new ArrayList<>(INSERT_CHUNK);
+        for (int i = 0; i < accounts; i++) {
+            rows.add(new Object[]{FIRST_ID + i, now, now, 1L, accountNumber(i), "IN_USE", 0L, now});
+            if (rows.size() == INSERT_CHUNK || i == accounts - 1) {
+                jdbcTemplate.batchUpdate("insert into account (id, created_at, updated_at, account_user_id, "
+                        + "account_number, account_status, balance, registered_at) values (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        for (int i = 0; i < transactions; i++) {
+            rows.add(new Object[]{FIRST_ID + i, now, now, "USE", "S", FIRST_ID + (i % accounts),
+                    10L, 0L, transactionId(i), now});
+            if (rows.size() == INSERT_CHUNK || i == transactions - 1) {
+                jdbcTemplate.batchUpdate("insert into transaction (id, created_at, updated_at, transaction_type, "
+                        + "transaction_result_type, account_id, amount, balance_snapshot, transaction_id, transacted_at) "
+                        + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Transaction> findByTransactionId() {
+        return transactionRepository.findByTransactionId(
+                transactionId(ThreadLocalRandom.current().nextInt(transactions)));
+    }
+
+    @Benchmark
+    public Optional<Account> findByAccountNumber() {
+        return accountRepository.findByAccountNumber(
+                accountNumber(ThreadLocalRandom.current().nextInt(accounts)));
+    }
+
+    private static String accountNumber(int index) {
+        return String.valueOf(2_000_000_000L + index);
+    }
+
+    private static String transactionId(int index) {
+        return String.format("%032d", index);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.account.benchmark;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.service.AccountService;
+import com.example.account.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * H2 위에서 TransactionService 의 잔액 사용/취소 경로를 측정한다 (락은 포함하지 않음)
+ * SampleTime 모드 결과에 p0.99 가 함께 출력된다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionServiceBenchmark {
+    private static final long USER_ID = 1L; // data.sql 에 들어있는 사용자
+    private static final long AMOUNT = 100L;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private String accountNumber;
+    private String useTransactionId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start();
+        transactionService = context.getBean(TransactionService.class);
+        accountNumber = context.getBean(AccountService.class)
+                .createAccount(USER_ID, Long.MAX_VALUE / 2)
+                .getAccountNumber();
+        // 전액 취소만 가능하므로 같은 금액의 사용 거래를 하나 만들어 두고 반복해서 취소한다
+        useTransactionId = transactionService.useBalance(USER_ID, accountNumber, AMOUNT)
+                .getTransactionId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionDto useBalance() {
+        return transactionService.useBalance(USER_ID, accountNumber, AMOUNT);
+    }
+
+    @Benchmark
+    public TransactionDto cancleBalance() {
+        return transactionService.cancleBalance(useTransactionId, accountNumber, AMOUNT);
+    }
+}
@@ -7,5 +7,11 @@ import java.lang.annotation.*;
 @Documented
 @Inherited // 상속 가능한 구조로 쓰겠다
 public @interface AccountLock { //단순히 어노테이션만 만듦, 어노테이션이 붙었을 때 동작하는 부분은 따로 만들어줘야 함
-    long tryLockTime() default 5000L; // 이 시간동안 기다리겠다
+    long WATCHDOG = -1L; // leaseTime 에 지정하면 락을 쥐고 있는 동안 lease 를 자동 연장한다
+
+    String name() default ""; // account.lock.policies.<name> 으로 설정을 덮어쓸 때 쓰는 이름
+
+    long tryLockTime() default 5000L; // 이 시간동안 기다리겠다 (ms)
+
+    long leaseTime() default 15000L; // 락을 잡은 뒤 이 시간이 지나면 자동으로 풀린다 (ms)
 }
@@ -0,0 +1,8 @@
+package com.example.account.aop;
+
+import java.util.List;
+
+// 여러 계좌를 한 번에 다루는 요청은 관련된 계좌들의 락을 모두 잡는다
+public interface AccountLockIdsInterface {
+    List<String> getAccountNumbers();
+}
@@ -0,0 +1,15 @@
+package com.example.account.aop;
+
+/**
+ * @AccountLock, @Idempotent 메서드에 걸리는 Aspect 들의 실행 순서, 숫자가 작을수록 바깥쪽에서 실행된다
+ */
+public final class AspectOrder {
+    public static final int IDEMPOTENCY = -10; // 재요청은 실행기, 락, DB 를 거치지 않고 바로 응답한다
+    public static final int ASYNC_EXECUTION = 0; // 락 대기를 포함한 전체를 실행기 스레드로 넘긴다
+    public static final int ACCOUNT_LOCK = 10;
+    public static final int OPTIMISTIC_RETRY = 10; // account.concurrency.mode 에 따라 ACCOUNT_LOCK 과 둘 중 하나만 등록된다
+    public static final int FAULT_INJECTION = 20; // 락을 잡은 상태에서 지연을 넣어야 락 경합을 재현할 수 있다
+
+    private AspectOrder() {
+    }
+}
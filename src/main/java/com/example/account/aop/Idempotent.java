@@ -0,0 +1,14 @@
+package com.example.account.aop;
+
+import java.lang.annotation.*;
+
+/**
+ * Idempotency-Key 헤더가 있는 요청은 키별로 처음 한 번만 처리하고, 같은 키의 재요청에는 저장해 둔 결과를 그대로 돌려준다
+ * 헤더가 없으면 아무 것도 하지 않는다
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Idempotent {
+    String name(); // 같은 키라도 엔드포인트가 다르면 다른 요청으로 본다
+}
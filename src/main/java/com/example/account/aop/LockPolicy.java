@@ -0,0 +1,26 @@
+package com.example.account.aop;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 락 대기 시간과 lease 시간 (ms), leaseTime 이 AccountLock.WATCHDOG 이면 watchdog 으로 자동 연장
+ */
+@Getter
+@AllArgsConstructor
+public class LockPolicy {
+    private final long waitTime;
+    private final long leaseTime;
+
+    public boolean isWatchdog() {
+        return leaseTime == AccountLock.WATCHDOG;
+    }
+
+    // 여러 계좌의 락을 차례로 잡을 때 전체 대기 시간이 waitTime 을 넘지 않도록 남은 시간만 기다린다
+    public LockPolicy remainingUntil(long deadlineNanos) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        return new LockPolicy(Math.max(0L, remaining), leaseTime);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 계좌 대량 생성 설정
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "account.bulk")
+public class AccountBulkProperties {
+    private int chunkSize = 1000; // 이 개수마다 flush 하고 영속성 컨텍스트를 비운다
+}
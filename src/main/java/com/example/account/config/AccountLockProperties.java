@@ -0,0 +1,41 @@
+package com.example.account.config;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.aop.LockPolicy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @AccountLock 의 대기/lease 시간을 엔드포인트별로 덮어쓰는 설정
+ * 설정이 없는 값은 어노테이션에 선언된 값을 그대로 쓴다
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "account.lock")
+public class AccountLockProperties {
+    private Map<String, Policy> policies = new HashMap<>();
+
+    public LockPolicy getPolicy(AccountLock accountLock) {
+        Policy override = policies.get(accountLock.name());
+        if (override == null) {
+            return new LockPolicy(accountLock.tryLockTime(), accountLock.leaseTime());
+        }
+        return new LockPolicy(
+                override.getWaitTime() != null ? override.getWaitTime() : accountLock.tryLockTime(),
+                override.getLeaseTime() != null ? override.getLeaseTime() : accountLock.leaseTime()
+        );
+    }
+
+    @Getter
+    @Setter
+    public static class Policy {
+        private Long waitTime;
+        private Long leaseTime; // -1 이면 watchdog
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.account.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 비동기 응답의 대기 시간은 spring.mvc.async.request-timeout 하나로 정해진다
+ * 거래 내역 내보내기는 수천만 건을 쓰는 동안 응답이 계속 열려 있어야 하므로
+ * 컨트롤러가 요청에 LONG_RUNNING 표시를 남기면 그 요청만 account.export.timeout-millis 를 쓴다
+ */
+@Configuration
+public class AsyncSupportConfig implements WebMvcConfigurer {
+    public static final String LONG_RUNNING = AsyncSupportConfig.class.getName() + ".LONG_RUNNING";
+
+    private final long exportTimeoutMillis;
+
+    public AsyncSupportConfig(@Value("${account.export.timeout-millis:3600000}") long exportTimeoutMillis) {
+        this.exportTimeoutMillis = exportTimeoutMillis;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // 비동기 처리를 시작하기 직전이라 여기서 바꾼 시간이 적용된다
+                if (request instanceof AsyncWebRequest
+                        && request.getAttribute(LONG_RUNNING, RequestAttributes.SCOPE_REQUEST) != null) {
+                    ((AsyncWebRequest) request).setTimeout(exportTimeoutMillis);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.account.config;
+
+import com.example.account.type.ErrorCode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 락 경합 부하 테스트용 지연/장애 주입 규칙, fault-injection 프로필에서만 로딩된다
+ */
+@Getter
+@Setter
+@Configuration
+@Profile("fault-injection")
+@ConfigurationProperties(prefix = "account.fault-injection")
+public class FaultInjectionProperties {
+    private List<Rule> rules = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Rule {
+        private String endpoint = "/**"; // ant 패턴
+        private Pattern accountPattern = Pattern.compile(".*"); // 계좌번호 정규식
+        private double probability = 1.0;
+        private Distribution distribution = Distribution.FIXED;
+        private long delayMillis; // FIXED: 지연 시간, UNIFORM: 최소값, EXPONENTIAL: 평균
+        private long maxDelayMillis; // UNIFORM: 최대값, EXPONENTIAL: 상한 (0 이면 상한 없음)
+        private ErrorCode errorCode; // 지정하면 지연 후 해당 에러로 실패시킨다
+    }
+
+    public enum Distribution {
+        FIXED,
+        UNIFORM,
+        EXPONENTIAL
+    }
+}
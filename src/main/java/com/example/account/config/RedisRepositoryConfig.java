@@ -15,10 +15,15 @@ public class RedisRepositoryConfig {
     @Value("${spring.redis.port}")
     private int redisPort;
 
+    @Value("${account.lock.watchdog-timeout:30000}")
+    private long lockWatchdogTimeout;
+
     @Bean
     public RedissonClient redissonClient() {
         Config config = new Config();
         config.useSingleServer().setAddress("redis://" + redisHost + ":" + redisPort);
+        // watchdog 모드의 락은 이 시간의 1/3 마다 연장되고, 인스턴스가 죽으면 이 시간 뒤에 풀린다
+        config.setLockWatchdogTimeout(lockWatchdogTimeout);
 
         return Redisson.create(config);
     }
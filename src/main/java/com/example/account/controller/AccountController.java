@@ -3,6 +3,7 @@ package com.example.account.controller;
 import com.example.account.domain.Account;
 import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
+import com.example.account.dto.CreateAccountBulk;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.service.AccountService;
 import lombok.RequiredArgsConstructor;
@@ -10,7 +11,6 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
@@ -30,6 +30,15 @@ public class AccountController {
         );
     }
 
+    @PostMapping("/account/bulk")
+    public CreateAccountBulk.Response createAccounts(
+            @RequestBody @Valid CreateAccountBulk.Request request
+    ) {
+        return CreateAccountBulk.Response.from(
+                accountService.createAccounts(request.getAccounts())
+        );
+    }
+
     @DeleteMapping("/account")
     public DeleteAccount.Response deleteAccount(
             @RequestBody @Valid DeleteAccount.Request request
@@ -45,15 +54,8 @@ public class AccountController {
     @GetMapping("/account")
     public List<AccountInfo> getAccountsByUserId(
             @RequestParam("user_id") Long userId) {
-        //stream으로 열어서 map으로 변환하는 게 성능상으로는 떨어지지만 처음부터 성능 때문에 모든 걸 성능 위주로 개발하면 복잡도와 유지보수성이 떨어질 수 있음
-        //성능은 문제될때까지 문제가 아님, 성능보다 유지보수성이 먼저이다
-        return accountService.getAccountsByUserId(userId)
-                .stream().map(accountDto ->
-                        AccountInfo.builder()
-                                .accountNumber(accountDto.getAccountNumber())
-                                .balance(accountDto.getBalance())
-                                .build())
-                .collect(Collectors.toList());
+        //성능은 문제될때까지 문제가 아님, 계좌 수만큼 엔티티를 만들던 게 문제가 되어 projection 쿼리로 바로 AccountInfo 를 받는다
+        return accountService.getAccountInfosByUserId(userId);
     }
 
     @GetMapping("/account/{id}")
@@ -0,0 +1,28 @@
+package com.example.account.controller;
+
+import com.example.account.service.HotAccountSketch;
+import com.example.account.service.LockMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * GET /actuator/hotaccounts?limit=10 : 락 요청이 가장 많은 계좌 top-N
+ */
+@Component
+@Endpoint(id = "hotaccounts")
+@RequiredArgsConstructor
+public class HotAccountEndpoint {
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final LockMetrics lockMetrics;
+
+    @ReadOperation
+    public List<HotAccountSketch.Entry> hotAccounts(@Nullable Integer limit) {
+        return lockMetrics.getHotAccounts(limit != null ? limit : DEFAULT_LIMIT);
+    }
+}
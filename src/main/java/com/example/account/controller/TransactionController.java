@@ -1,23 +1,51 @@
 package com.example.account.controller;
 
 import com.example.account.aop.AccountLock;
+import com.example.account.aop.Idempotent;
+import com.example.account.config.AsyncSupportConfig;
+import com.example.account.dto.BalanceAt;
+import com.example.account.dto.BalanceChangeEvents;
 import com.example.account.dto.CancleBalance;
 import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionHistory;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.exception.AccountException;
 import com.example.account.exception.TransactionException;
+import com.example.account.service.FailedTransactionRecorder;
+import com.example.account.service.TransactionExportService;
+import com.example.account.service.TransactionOutbox;
 import com.example.account.service.TransactionService;
+import com.example.account.type.ExportFormat;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 잔액 관련 컨트롤러
  * 1. 잔액 사용
  * 2. 잔액 사용 취소
  * 3. 거래 확인
+ * 4. 잔액 일괄 사용
+ * 5. 계좌별 거래 내역
+ * 6. 거래 내역 내보내기 (NDJSON / CSV)
+ * 7. 특정 시점의 잔액
+ * 8. 잔액 변경 이벤트 (cursor 로 이어 읽기)
+ * 잔액을 바꾸는 요청은 CompletableFuture 로 응답한다
+ * account.execution.mode=async 면 AsyncExecutionAspect 가 전용 실행기에서 처리해서 서블릿 스레드를 바로 돌려준다
+ * 잔액 사용/취소에 Idempotency-Key 헤더를 보내면 같은 키의 재요청은 처음 요청의 결과를 그대로 받는다
  */
 @Slf4j
 @RestController
@@ -25,21 +53,24 @@ import javax.validation.Valid;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final FailedTransactionRecorder failedTransactionRecorder;
+    private final TransactionOutbox transactionOutbox;
 
     @PostMapping("/transaction/use")
-    @AccountLock
-    public UseBalance.Response useBalance(
+    @Idempotent(name = "use")
+    @AccountLock(name = "use")
+    public CompletableFuture<UseBalance.Response> useBalance(
             @Valid @RequestBody UseBalance.Request request
-    ) throws InterruptedException {
+    ) {
         try {
-            Thread.sleep(3000L);
-            return UseBalance.Response.from(
+            return CompletableFuture.completedFuture(UseBalance.Response.from(
                     transactionService.useBalance(request.getUserId(),
-                            request.getAccountNumber(), request.getAmount()));
+                            request.getAccountNumber(), request.getAmount())));
         } catch (AccountException e) {
             // 비즈니스적으로 의도적으로 만들어 둔 익셉션이 발생했을 때
             log.error("Failed to use balance. ");
-            transactionService.saveFailedUseTransaction( //트랜잭션 테이블에 실패 부분을 남긴다
+            failedTransactionRecorder.recordUse( //트랜잭션 테이블에 실패 부분을 남긴다, 저장은 writer 스레드에서 모아서 한다
                     request.getAccountNumber(),
                     request.getAmount()
             );
@@ -47,18 +78,29 @@ public class TransactionController {
         }
     }
 
+    @PostMapping("/transaction/use/batch")
+    @AccountLock(name = "use-batch", leaseTime = AccountLock.WATCHDOG) // 락을 여러 개 차례로 잡는 동안 먼저 잡은 락이 풀리지 않도록
+    public CompletableFuture<UseBalanceBatch.Response> useBalanceBatch(
+            @Valid @RequestBody UseBalanceBatch.Request request
+    ) {
+        // 건별 실패는 서비스에서 F 결과로 남기기 때문에 여기서는 따로 잡지 않는다
+        return CompletableFuture.completedFuture(UseBalanceBatch.Response.from(
+                transactionService.useBalanceBatch(request.getTransactions())));
+    }
+
     @PostMapping("/transaction/cancle")
-    @AccountLock
-    public CancleBalance.Response cancleBalance(
+    @Idempotent(name = "cancle")
+    @AccountLock(name = "cancle")
+    public CompletableFuture<CancleBalance.Response> cancleBalance(
             @Valid @RequestBody CancleBalance.Request request
     ) {
         try {
-            return CancleBalance.Response.from(
+            return CompletableFuture.completedFuture(CancleBalance.Response.from(
                     transactionService.cancleBalance(request.getTransactionId(),
-                            request.getAccountNumber(), request.getAmount()));
+                            request.getAccountNumber(), request.getAmount())));
         } catch (AccountException | TransactionException e) {
             log.error("Failed to use balance. ");
-            transactionService.saveFailedCancleTransaction(
+            failedTransactionRecorder.recordCancle(
                     request.getAccountNumber(),
                     request.getAmount()
             );
@@ -75,4 +117,67 @@ public class TransactionController {
         );
     }
 
+    @GetMapping("/account/{accountNumber}/transactions")
+    public TransactionHistory.Response getTransactionHistory(
+            @PathVariable String accountNumber,
+            @RequestParam(value = "transaction_type", required = false) TransactionType transactionType,
+            @RequestParam(value = "transaction_result", required = false) TransactionResultType transactionResultType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return TransactionHistory.Response.from(
+                transactionService.getTransactionHistory(accountNumber,
+                        transactionType, transactionResultType, cursor, size)
+        );
+    }
+
+    @GetMapping("/account/{accountNumber}/balance")
+    public BalanceAt.Response getBalanceAt(
+            @PathVariable String accountNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at
+    ) {
+        return BalanceAt.Response.builder()
+                .accountNumber(accountNumber)
+                .balance(transactionService.getBalanceAt(accountNumber, at))
+                .at(at)
+                .build();
+    }
+
+    /**
+     * 잔액 변경 이벤트를 발행된 순서대로 읽는다
+     * 처음에는 after=0 으로, 이후에는 이전 응답의 nextCursor 로 요청해서 새로 생긴 이벤트만 받는다
+     */
+    @GetMapping("/transaction/events")
+    public BalanceChangeEvents.Response getBalanceChangeEvents(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        return BalanceChangeEvents.Response.from(after,
+                transactionOutbox.getEventsAfter(after, size));
+    }
+
+    /**
+     * 계좌번호 또는 기간(from 이상 to 미만, 계좌번호가 없으면 둘 다 필요)으로 거래 내역을 내보낸다
+     * 응답 본문은 비동기 스레드에서 페이지 단위로 DB 에서 읽는 대로 바로 쓴다
+     */
+    @GetMapping("/transaction/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(value = "account_number", required = false) String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            HttpServletRequest request
+    ) {
+        transactionExportService.validateExport(accountNumber, from, to);
+        request.setAttribute(AsyncSupportConfig.LONG_RUNNING, Boolean.TRUE);
+
+        StreamingResponseBody body = outputStream -> transactionExportService.export(
+                accountNumber, from, to, format, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=transactions." + format.getExtension())
+                .body(body);
+    }
+
 }
@@ -9,10 +9,16 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import java.time.LocalDateTime;
 
 @Getter
@@ -21,9 +27,16 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @SuperBuilder
 @Entity
+@Table(indexes = { // 계좌번호 조회는 모든 거래에서 일어나므로 full scan 이 되지 않도록
+        @Index(name = "uk_account_account_number", columnList = "account_number", unique = true),
+        @Index(name = "idx_account_account_user_id", columnList = "account_user_id")
+})
 public class Account extends BaseEntity{
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY) // 소유주가 필요한 곳에서만 fetch join 으로 읽는다
+    @JoinColumn(name = "account_user_id")
     private AccountUser accountUser; // User는 시스템 유저 테이블과 충돌할 수 있음
+
+    @Column(name = "account_number")
     private String accountNumber;
 
     @Enumerated(EnumType.STRING)
@@ -34,6 +47,9 @@ public class Account extends BaseEntity{
 
     private LocalDateTime unRegisteredAt;
 
+    @Version // account.concurrency.mode=optimistic 에서 동시에 잔액을 바꾸면 나중에 커밋하는 쪽이 실패한다
+    private Long version;
+
     public void useBalance(Long amount){
         if(amount > balance){
             throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
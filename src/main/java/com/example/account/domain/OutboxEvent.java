@@ -0,0 +1,65 @@
+package com.example.account.domain;
+
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 잔액 변경 이벤트 outbox, 성공한 거래와 같은 트랜잭션에서 저장된다
+ * OutboxRelay 가 발행하면서 sequence 를 매기고, 소비하는 쪽은 sequence 를 cursor 로 이어서 읽는다
+ * id 는 다른 엔티티와 같은 pooled 시퀀스라 거래와 함께 batch insert 되지만, 인스턴스마다 다른 id 블록을 쓰므로 순서로는 쓰지 않는다
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@SuperBuilder
+@Entity
+@Table(indexes = {
+        @Index(name = "uk_outbox_event_event_sequence", columnList = "event_sequence", unique = true),
+        @Index(name = "idx_outbox_event_published_at", columnList = "published_at"),
+        // 아직 발행하지 않은(event_sequence 가 null) 이벤트를 거래 시각 순으로 읽는다
+        @Index(name = "idx_outbox_event_pending", columnList = "event_sequence, transacted_at, id")
+})
+public class OutboxEvent extends BaseEntity {
+    private String accountNumber;
+
+    @Enumerated(EnumType.STRING)
+    private TransactionType transactionType;
+
+    private Long amount;
+
+    private Long balanceSnapshot;
+
+    private String transactionId;
+
+    private LocalDateTime transactedAt;
+
+    @Column(name = "event_sequence")
+    private Long sequence; // 발행 전에는 null
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    public static OutboxEvent from(Transaction transaction) {
+        return OutboxEvent.builder()
+                .accountNumber(transaction.getAccount().getAccountNumber())
+                .transactionType(transaction.getTransactionType())
+                .amount(transaction.getAmount())
+                .balanceSnapshot(transaction.getBalanceSnapshot())
+                .transactionId(transaction.getTransactionId())
+                .transactedAt(transaction.getTransactedAt())
+                .build();
+    }
+}
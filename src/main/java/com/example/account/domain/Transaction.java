@@ -8,10 +8,15 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import java.time.LocalDateTime;
 
 @Getter
@@ -20,6 +25,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @SuperBuilder
 @Entity
+@Table(indexes = {
+        @Index(name = "uk_transaction_transaction_id", columnList = "transaction_id", unique = true),
+        // 계좌별 거래 내역을 최신순으로 이어서 읽는 keyset 조회용, account_id 만으로 찾는 조회도 이 인덱스를 쓴다
+        @Index(name = "idx_transaction_account_id_transacted_at", columnList = "account_id, transacted_at, id"),
+        // 계좌를 지정하지 않은 기간 내보내기용, (transacted_at, id) keyset 으로 페이지를 이어서 읽는다
+        @Index(name = "idx_transaction_transacted_at", columnList = "transacted_at, id")
+})
 public class Transaction extends BaseEntity{
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
@@ -27,14 +39,17 @@ public class Transaction extends BaseEntity{
     @Enumerated(EnumType.STRING)
     private TransactionResultType transactionResultType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id")
     private Account account;
 
     private Long amount;
 
     private Long balanceSnapshot;
 
+    @Column(name = "transaction_id")
     private String transactionId;
 
+    @Column(name = "transacted_at")
     private LocalDateTime transactedAt;
 }
@@ -0,0 +1,32 @@
+package com.example.account.dto;
+
+import com.example.account.domain.Account;
+import com.example.account.type.AccountStatus;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * 거래 전 검증에 필요한 계좌 정보만 담는다, 잔액은 락을 잡은 뒤에 DB(또는 원장)에서 읽어야 하므로 담지 않는다
+ * 소유주는 바뀌지 않고 해지된 계좌는 다시 사용 상태가 되지 않기 때문에 캐시해도 잘못된 결과를 내지 않는다
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountMetadata implements Serializable { // Redis 캐시에 직렬화해서 담는다
+    private Long accountId;
+    private String accountNumber;
+    private Long ownerId;
+    private AccountStatus accountStatus;
+
+    public static AccountMetadata fromEntity(Account account) {
+        return AccountMetadata.builder()
+                .accountId(account.getId())
+                .accountNumber(account.getAccountNumber())
+                .ownerId(account.getAccountUser().getId()) // 지연 로딩 프록시도 id 는 쿼리 없이 꺼낸다
+                .accountStatus(account.getAccountStatus())
+                .build();
+    }
+}
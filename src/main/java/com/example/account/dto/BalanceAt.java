@@ -0,0 +1,19 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// 특정 시점의 계좌 잔액
+public class BalanceAt {
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String accountNumber;
+        private Long balance;
+        private LocalDateTime at;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.account.dto;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// 잔액 변경 이벤트, consumer 는 sequence 로 이어 읽고 transactionId 로 중복을 거른다
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceChangeEvent {
+    private Long sequence;
+    private String accountNumber;
+    private TransactionType transactionType;
+    private Long amount;
+    private Long balanceSnapshot;
+    private String transactionId;
+    private LocalDateTime transactedAt;
+
+    public static BalanceChangeEvent fromEntity(OutboxEvent outboxEvent) {
+        return BalanceChangeEvent.builder()
+                .sequence(outboxEvent.getSequence())
+                .accountNumber(outboxEvent.getAccountNumber())
+                .transactionType(outboxEvent.getTransactionType())
+                .amount(outboxEvent.getAmount())
+                .balanceSnapshot(outboxEvent.getBalanceSnapshot())
+                .transactionId(outboxEvent.getTransactionId())
+                .transactedAt(outboxEvent.getTransactedAt())
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+// 잔액 변경 이벤트 조회, 다음 요청은 응답의 nextCursor 를 after 로 넘긴다
+public class BalanceChangeEvents {
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private List<BalanceChangeEvent> events; // 발행된 순서대로
+        private Long nextCursor; // 새 이벤트가 없으면 요청한 after 그대로
+
+        public static Response from(Long after, List<BalanceChangeEvent> events) {
+            return Response.builder()
+                    .events(events)
+                    .nextCursor(events.isEmpty() ? after : events.get(events.size() - 1).getSequence())
+                    .build();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.example.account.type.TransactionResultType;
 import lombok.*;
 
 import javax.validation.constraints.*;
+import java.io.Serializable;
 import java.time.LocalDateTime;
 // UseBalance 와 같다고 해도 나중에 달라질 수 있고 또 추후 혼동이 될 수 있음 > 지금 당장은 동일해도 의도적의로 분리하자
 public class CancleBalance {
@@ -30,7 +31,7 @@ public class CancleBalance {
     @NoArgsConstructor
     @AllArgsConstructor
     @Builder
-    public static class Response {
+    public static class Response implements Serializable { // Idempotency-Key 재요청에 돌려주기 위해 Redis 에 저장한다
         private String accountNumber;
         private TransactionResultType transactionResult;
         private String transactionId;
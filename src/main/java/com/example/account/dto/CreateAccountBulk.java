@@ -0,0 +1,39 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// 온보딩 이관처럼 한 번에 몰려오는 계좌 생성 요청을 하나의 트랜잭션으로 처리
+public class CreateAccountBulk {
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Request {
+        @NotEmpty
+        @Size(max = 100_000)
+        private List<@Valid CreateAccount.Request> accounts;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private List<CreateAccount.Response> accounts; // 요청과 같은 순서, 계좌번호는 연속으로 발급된다
+
+        public static Response from(List<AccountDto> accountDtos) {
+            return Response.builder()
+                    .accounts(accountDtos.stream()
+                            .map(CreateAccount.Response::from)
+                            .collect(Collectors.toList()))
+                    .build();
+        }
+    }
+}
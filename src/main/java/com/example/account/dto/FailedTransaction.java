@@ -0,0 +1,17 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// 저장을 기다리는 실패 거래, 실패한 시각은 저장되는 시각이 아니라 요청이 실패한 시각으로 남긴다
+@Getter
+@AllArgsConstructor
+public class FailedTransaction {
+    private TransactionType transactionType;
+    private String accountNumber;
+    private Long amount;
+    private LocalDateTime failedAt;
+}
@@ -5,6 +5,7 @@ import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import lombok.*;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 
 @Getter
@@ -12,7 +13,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class TransactionDto {
+public class TransactionDto implements Serializable { // Redis 캐시에 직렬화해서 담는다
     private String accountNumber;
     private TransactionType transactionType;
     private TransactionResultType transactionResultType;
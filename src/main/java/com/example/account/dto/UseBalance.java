@@ -5,6 +5,7 @@ import com.example.account.type.TransactionResultType;
 import lombok.*;
 
 import javax.validation.constraints.*;
+import java.io.Serializable;
 import java.time.LocalDateTime;
 
 public class UseBalance {
@@ -31,7 +32,7 @@ public class UseBalance {
     @NoArgsConstructor
     @AllArgsConstructor
     @Builder
-    public static class Response {
+    public static class Response implements Serializable { // Idempotency-Key 재요청에 돌려주기 위해 Redis 에 저장한다
         private String accountNumber;
         private TransactionResultType transactionResult;
         private String transactionId;
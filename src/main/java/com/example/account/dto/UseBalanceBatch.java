@@ -0,0 +1,49 @@
+package com.example.account.dto;
+
+import com.example.account.aop.AccountLockIdsInterface;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// 정산처럼 한 번에 몰려오는 잔액 사용 요청을 하나의 트랜잭션으로 처리
+public class UseBalanceBatch {
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Request implements AccountLockIdsInterface {
+        @NotEmpty
+        @Size(max = 1000)
+        private List<@Valid UseBalance.Request> transactions; // 요청 순서대로 적용된다
+
+        @JsonIgnore
+        @Override
+        public List<String> getAccountNumbers() {
+            return transactions.stream()
+                    .map(UseBalance.Request::getAccountNumber)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private List<UseBalance.Response> transactions; // 요청과 같은 순서, 건별로 S/F 결과를 담는다
+
+        public static Response from(List<TransactionDto> transactionDtos) {
+            return Response.builder()
+                    .transactions(transactionDtos.stream()
+                            .map(UseBalance.Response::from)
+                            .collect(Collectors.toList()))
+                    .build();
+        }
+    }
+}
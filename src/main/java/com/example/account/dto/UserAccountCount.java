@@ -0,0 +1,12 @@
+package com.example.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// 사용자별 계좌 수, 여러 사용자의 계좌 수를 group by 쿼리 한 번으로 읽을 때 사용
+@Getter
+@AllArgsConstructor
+public class UserAccountCount {
+    private Long userId;
+    private Long accountCount;
+}
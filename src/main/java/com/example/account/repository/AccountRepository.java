@@ -2,19 +2,40 @@ package com.example.account.repository;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.UserAccountCount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
-    Optional<Account> findFirstByOrderByIdDesc();
+    // 계좌번호는 모두 10자리라 문자열 max 가 가장 큰 번호다, 계좌가 없으면 empty
+    @Query("select max(a.accountNumber) from Account a")
+    Optional<String> findMaxAccountNumber();
 
     Integer countByAccountUser(AccountUser accountUser);
 
     Optional<Account> findByAccountNumber(String accountNumber);
 
-    List<Account> findByAccountUser(AccountUser accountUser);
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
+    // 엔티티를 만들지 않고 필요한 컬럼만 바로 AccountInfo 로 읽는다 (쿼리 한 번)
+    @Query("select new com.example.account.dto.AccountInfo(a.accountNumber, a.balance)" +
+            " from Account a where a.accountUser.id = :userId order by a.id")
+    List<AccountInfo> findAccountInfosByAccountUserId(@Param("userId") Long userId);
+
+    // 여러 사용자의 계좌 수를 한 번에, 계좌가 없는 사용자는 결과에 없다
+    @Query("select new com.example.account.dto.UserAccountCount(a.accountUser.id, count(a))" +
+            " from Account a where a.accountUser.id in :userIds group by a.accountUser.id")
+    List<UserAccountCount> countByAccountUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // 계좌 엔티티를 그대로 응답하는 경우에는 소유주까지 한 번에 읽는다
+    @Query("select a from Account a join fetch a.accountUser where a.id = :id")
+    Optional<Account> findWithAccountUserById(@Param("id") Long id);
 }
@@ -0,0 +1,32 @@
+package com.example.account.repository;
+
+import com.example.account.domain.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    // 아직 발행하지 않은 이벤트, 거래 시각 순서대로
+    // 한 계좌의 거래는 계좌 락으로 차례로 커밋되므로 거래 시각 순서가 계좌별 커밋 순서다
+    List<OutboxEvent> findBySequenceIsNullOrderByTransactedAtAscIdAsc(Pageable pageable);
+
+    @Query("select max(e.sequence) from OutboxEvent e")
+    Long findMaxSequence();
+
+    // cursor 다음부터 발행된 순서대로, event_sequence 인덱스를 따라 읽는다
+    List<OutboxEvent> findBySequenceGreaterThanOrderBySequence(Long sequence, Pageable pageable);
+
+    // 마지막으로 발행한 이벤트는 남겨둬야 다음 sequence 를 이어서 매길 수 있다
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :before and e.sequence < :maxSequence")
+    int deletePublishedBefore(
+            @Param("before") LocalDateTime before,
+            @Param("maxSequence") Long maxSequence);
+}
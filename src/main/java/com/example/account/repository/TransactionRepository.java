@@ -1,12 +1,100 @@
 package com.example.account.repository;
 
+import com.example.account.domain.Account;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     Optional<Transaction> findByTransactionId(String transactionId);
+
+    // 조회 응답에 필요한 값만 계좌와 join 해서 한 번에 읽는다
+    @Query("select new com.example.account.dto.TransactionDto(a.accountNumber, t.transactionType," +
+            " t.transactionResultType, t.amount, t.balanceSnapshot, t.transactionId, t.transactedAt)" +
+            " from Transaction t join t.account a where t.transactionId = :transactionId")
+    Optional<TransactionDto> findDtoByTransactionId(@Param("transactionId") String transactionId);
+
+    /**
+     * 내보내기용 keyset 페이지, 이전 페이지의 마지막 (transactedAt, id) 바로 뒤부터 (transacted_at, id) 순으로 읽는다
+     * 첫 페이지는 (from, 0) 을 넘기면 from 이상부터 읽는다
+     * 한 계좌의 기간 내 거래, (account_id, transacted_at, id) 인덱스 순서 그대로 읽는다
+     */
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select t from Transaction t join fetch t.account a" +
+            " where a.accountNumber = :accountNumber" +
+            " and (t.transactedAt > :transactedAt or (t.transactedAt = :transactedAt and t.id > :id))" +
+            " and t.transactedAt < :to" +
+            " order by t.transactedAt, t.id")
+    List<Transaction> findExportPageByAccount(
+            @Param("accountNumber") String accountNumber,
+            @Param("transactedAt") LocalDateTime transactedAt,
+            @Param("id") Long id,
+            @Param("to") LocalDateTime to,
+            Pageable pageable);
+
+    // 모든 계좌의 기간 내 거래, transacted_at 인덱스로 기간만 읽는다
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select t from Transaction t join fetch t.account a" +
+            " where (t.transactedAt > :transactedAt or (t.transactedAt = :transactedAt and t.id > :id))" +
+            " and t.transactedAt < :to" +
+            " order by t.transactedAt, t.id")
+    List<Transaction> findExportPage(
+            @Param("transactedAt") LocalDateTime transactedAt,
+            @Param("id") Long id,
+            @Param("to") LocalDateTime to,
+            Pageable pageable);
+
+    // 계좌의 거래 내역 첫 페이지, (transacted_at, id) 역순
+    @Query("select t from Transaction t where t.account = :account" +
+            " and (:transactionType is null or t.transactionType = :transactionType)" +
+            " and (:transactionResultType is null or t.transactionResultType = :transactionResultType)" +
+            " order by t.transactedAt desc, t.id desc")
+    List<Transaction> findHistory(
+            @Param("account") Account account,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("transactionResultType") TransactionResultType transactionResultType,
+            Pageable pageable);
+
+    // 다음 페이지, offset 없이 이전 페이지의 마지막 (transactedAt, id) 바로 뒤부터 인덱스를 따라 읽는다
+    @Query("select t from Transaction t where t.account = :account" +
+            " and (:transactionType is null or t.transactionType = :transactionType)" +
+            " and (:transactionResultType is null or t.transactionResultType = :transactionResultType)" +
+            " and (t.transactedAt < :transactedAt or (t.transactedAt = :transactedAt and t.id < :id))" +
+            " order by t.transactedAt desc, t.id desc")
+    List<Transaction> findHistoryBefore(
+            @Param("account") Account account,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("transactionResultType") TransactionResultType transactionResultType,
+            @Param("transactedAt") LocalDateTime transactedAt,
+            @Param("id") Long id,
+            Pageable pageable);
+
+    // 시점 이후의 첫 거래, (transacted_at, id) 순으로 인덱스를 따라 한 건만 읽는다
+    @Query("select t from Transaction t where t.account = :account" +
+            " and (:transactionType is null or t.transactionType = :transactionType)" +
+            " and (:transactionResultType is null or t.transactionResultType = :transactionResultType)" +
+            " and t.transactedAt > :transactedAt" +
+            " order by t.transactedAt asc, t.id asc")
+    List<Transaction> findHistoryAfter(
+            @Param("account") Account account,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("transactionResultType") TransactionResultType transactionResultType,
+            @Param("transactedAt") LocalDateTime transactedAt,
+            Pageable pageable);
 }
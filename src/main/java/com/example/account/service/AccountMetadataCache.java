@@ -0,0 +1,137 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.dto.AccountMetadata;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 계좌번호로 찾는 계좌 메타데이터(소유주, 상태) 캐시
+ * 1차 : 인스턴스 안의 Caffeine 캐시, 2차(선택) : 인스턴스끼리 공유하는 Redis 캐시
+ * 계좌 상태가 바뀌면(해지) 커밋 뒤에 Redis 캐시에서 지우고 RTopic 으로 알려서 다른 인스턴스의 1차 캐시도 지운다
+ * 지표 : cache.gets{cache=accountMetadata} (Caffeine), account.cache.account.invalidation
+ */
+@Slf4j
+@Component
+public class AccountMetadataCache {
+    private static final String CACHE_NAME = "accountMetadata";
+    private static final String REDIS_CACHE_KEY = "ACCOUNT_METADATA";
+    private static final String INVALIDATION_TOPIC = "ACCOUNT_METADATA_INVALIDATION";
+
+    private final boolean enabled;
+    private final long ttl;
+    private final Cache<String, AccountMetadata> localCache;
+    private final RMapCache<String, AccountMetadata> redisCache; // redis-enabled 가 아니면 null
+    private final RTopic invalidationTopic;
+    private final Counter invalidations;
+
+    public AccountMetadataCache(
+            RedissonClient redissonClient,
+            MeterRegistry meterRegistry,
+            @Value("${account.cache.account.enabled:true}") boolean enabled,
+            @Value("${account.cache.account.maximum-size:100000}") long maximumSize,
+            @Value("${account.cache.account.ttl:600000}") long ttl,
+            @Value("${account.cache.account.redis-enabled:false}") boolean redisEnabled
+    ) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .build();
+        this.redisCache = redisEnabled ? redissonClient.getMapCache(REDIS_CACHE_KEY) : null;
+        this.invalidations = Counter.builder("account.cache.account.invalidation").register(meterRegistry);
+        this.invalidationTopic = redissonClient.getTopic(INVALIDATION_TOPIC);
+        if (enabled) {
+            // 자기가 보낸 메시지도 받지만 이미 지운 키를 한 번 더 지울 뿐이다
+            invalidationTopic.addListener(String.class, (channel, accountNumber) -> {
+                localCache.invalidate(accountNumber);
+                invalidations.increment();
+            });
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, CACHE_NAME);
+    }
+
+    public Optional<AccountMetadata> get(String accountNumber) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        AccountMetadata accountMetadata = localCache.getIfPresent(accountNumber);
+        if (accountMetadata != null || redisCache == null) {
+            return Optional.ofNullable(accountMetadata);
+        }
+
+        try {
+            accountMetadata = redisCache.get(accountNumber);
+        } catch (Exception e) { // Redis 캐시 장애로 거래가 실패하지 않도록 DB 로 넘어간다
+            log.error("Failed to read account cache", e);
+            return Optional.empty();
+        }
+        if (accountMetadata != null) {
+            localCache.put(accountNumber, accountMetadata);
+        }
+        return Optional.ofNullable(accountMetadata);
+    }
+
+    // 트랜잭션 안에서 호출되면 커밋된 뒤에 캐시에 넣는다 (롤백된 계좌가 캐시에 남지 않도록)
+    public void put(Account account) {
+        if (!enabled) {
+            return;
+        }
+        AccountMetadata accountMetadata = AccountMetadata.fromEntity(account);
+        afterCommit(() -> {
+            localCache.put(accountMetadata.getAccountNumber(), accountMetadata);
+            if (redisCache != null) {
+                redisCache.fastPutAsync(accountMetadata.getAccountNumber(), accountMetadata, ttl, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    // 계좌 상태를 바꾼 트랜잭션이 커밋된 뒤에 모든 인스턴스의 캐시에서 지운다
+    public void evict(String accountNumber) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            localCache.invalidate(accountNumber);
+            try {
+                if (redisCache != null) {
+                    redisCache.fastRemove(accountNumber);
+                }
+                invalidationTopic.publish(accountNumber);
+            } catch (Exception e) {
+                // 다른 인스턴스의 캐시는 TTL 이 지나면 사라지고, 그 전에도 해지 여부는 DB 에서 다시 확인한다
+                log.error("Failed to publish account cache invalidation", e);
+            }
+        });
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+}
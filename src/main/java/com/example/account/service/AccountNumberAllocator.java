@@ -0,0 +1,14 @@
+package com.example.account.service;
+
+import java.util.List;
+
+/**
+ * 새 계좌번호를 발급한다
+ * 계좌 생성마다 DB를 조회하지 않도록 구현체가 번호 블록을 미리 예약해두고 나눠준다
+ */
+public interface AccountNumberAllocator {
+    String allocate();
+
+    // count 개의 연속된 계좌번호를 한 번에 예약한다 (대량 생성용)
+    List<String> allocate(int count);
+}
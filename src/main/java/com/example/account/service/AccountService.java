@@ -1,8 +1,13 @@
 package com.example.account.service;
 
+import com.example.account.config.AccountBulkProperties;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.CreateAccount;
+import com.example.account.dto.UserAccountCount;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
@@ -10,10 +15,14 @@ import com.example.account.type.AccountStatus;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.example.account.type.AccountStatus.IN_USE;
@@ -24,6 +33,11 @@ import static com.example.account.type.ErrorCode.*;
 public class AccountService {
     private final AccountRepository accountRepository;
     private final AccountUserRepository accountUserRepository;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final BalanceLedger balanceLedger;
+    private final AccountMetadataCache accountMetadataCache;
+    private final EntityManager entityManager;
+    private final AccountBulkProperties accountBulkProperties;
 
     /**
      * 사용자가 있는지 조회
@@ -36,21 +50,78 @@ public class AccountService {
 
         validateCreateAccount(accountUser);
 
-        String newAccountNumber = accountRepository.findFirstByOrderByIdDesc()
-                .map(account -> (Integer.parseInt(account.getAccountNumber()) + 1) + "")
-                .orElse("1000000000");
-
-        return AccountDto.fromEntity(
-                accountRepository.save(
-                        Account.builder()
-                                .accountUser(accountUser)
-                                .accountStatus(IN_USE)
-                                .accountNumber(newAccountNumber)
-                                .balance(initialBalance)
-                                .registeredAt(LocalDateTime.now())
-                                .build()
-                )
+        String newAccountNumber = accountNumberAllocator.allocate();
+
+        Account account = accountRepository.save(
+                Account.builder()
+                        .accountUser(accountUser)
+                        .accountStatus(IN_USE)
+                        .accountNumber(newAccountNumber)
+                        .balance(initialBalance)
+                        .registeredAt(LocalDateTime.now())
+                        .build()
         );
+        accountMetadataCache.put(account); // 곧 이어질 거래에서 바로 쓰도록 커밋된 뒤에 캐시에 넣어둔다
+
+        return AccountDto.fromEntity(account);
+    }
+
+    /**
+     * 온보딩 이관처럼 계좌를 한꺼번에 만드는 경우
+     * 사용자 조회, 사용자별 계좌 수 확인을 각각 쿼리 한 번으로 끝내고
+     * 계좌번호도 Redis 호출 한 번으로 연속된 구간을 받아온다
+     * id 는 pooled-lo 시퀀스라 insert 가 jdbc batch 로 묶이고, chunk 마다 flush/clear 해서 메모리를 일정하게 유지한다
+     */
+    @Transactional
+    public List<AccountDto> createAccounts(List<CreateAccount.Request> requests) {
+        Map<Long, Long> requestedCounts = requests.stream()
+                .collect(Collectors.groupingBy(CreateAccount.Request::getUserId, Collectors.counting()));
+
+        Map<Long, AccountUser> accountUsers = accountUserRepository.findAllById(requestedCounts.keySet()).stream()
+                .collect(Collectors.toMap(AccountUser::getId, Function.identity()));
+        if (accountUsers.size() != requestedCounts.size()) {
+            throw new AccountException(USER_NOT_FOUND);
+        }
+
+        validateCreateAccounts(requestedCounts);
+
+        List<String> accountNumbers = accountNumberAllocator.allocate(requests.size());
+        LocalDateTime registeredAt = LocalDateTime.now();
+
+        int chunkSize = accountBulkProperties.getChunkSize();
+        List<AccountDto> accountDtos = new ArrayList<>(requests.size());
+        List<Account> chunk = new ArrayList<>(Math.min(chunkSize, requests.size()));
+        for (int i = 0; i < requests.size(); i++) {
+            CreateAccount.Request request = requests.get(i);
+            chunk.add(Account.builder()
+                    .accountUser(accountUsers.get(request.getUserId()))
+                    .accountStatus(IN_USE)
+                    .accountNumber(accountNumbers.get(i))
+                    .balance(request.getInitialBalance())
+                    .registeredAt(registeredAt)
+                    .build());
+            if (chunk.size() == chunkSize || i == requests.size() - 1) {
+                accountRepository.saveAll(chunk).forEach(account -> accountDtos.add(AccountDto.fromEntity(account)));
+                accountRepository.flush();
+                entityManager.clear(); // 저장한 계좌를 영속성 컨텍스트에 쌓아두지 않는다
+                chunk.clear();
+            }
+        }
+        // 새 계좌는 캐시에 미리 넣지 않는다, 거래가 들어오면 그때 채워진다
+
+        return accountDtos;
+    }
+
+    private void validateCreateAccounts(Map<Long, Long> requestedCounts) {
+        for (UserAccountCount userAccountCount : accountRepository.countByAccountUserIds(requestedCounts.keySet())) {
+            if (userAccountCount.getAccountCount() + requestedCounts.get(userAccountCount.getUserId()) > 10) {
+                throw new AccountException(MAX_ACCOUNT_PER_USER_10);
+            }
+        }
+        // 계좌가 아직 없는 사용자는 조회 결과에 없으므로 요청 수만 확인한다
+        if (requestedCounts.values().stream().anyMatch(count -> count > 10)) {
+            throw new AccountException(MAX_ACCOUNT_PER_USER_10);
+        }
     }
 
     //validation 코드는 아무리 작더라도 별도의 private 메서드로 빼주자 > 가독성을 위해
@@ -65,15 +136,27 @@ public class AccountService {
         if (id < 0) {
             throw new AccountException(INVALID_REQUEST);
         }
-        return accountRepository.findById(id).get();
+        return accountRepository.findWithAccountUserById(id).get();
     }
 
     @Transactional
     public AccountDto deleteAccount(Long userId, String accountNumber) {
-        AccountUser accountUser = getAccountUser(userId);
+        // 캐시로 소유주가 확인되면 사용자를 따로 읽지 않는다, 소유주가 다르거나 캐시에 없으면 기존처럼 확인한다
+        boolean ownerVerified = accountMetadataCache.get(accountNumber)
+                .map(accountMetadata -> validateDeleteAccount(userId, accountMetadata))
+                .orElse(false);
+        AccountUser accountUser = ownerVerified ? null : getAccountUser(userId);
 
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        if (ownerVerified) {
+            accountUser = account.getAccountUser(); // id 비교만 하므로 지연 로딩 프록시 그대로 쓴다
+        }
+
+        if (balanceLedger.isEnabled()) {
+            // 메모리 원장의 잔액으로 확인하고, 해지하면서 Account 를 update 할 때 잔액도 같이 맞춘다
+            account.setBalance(balanceLedger.getBalance(account));
+        }
 
         validateDeleteAccount(accountUser, account);
 
@@ -81,10 +164,22 @@ public class AccountService {
         account.setUnRegisteredAt(LocalDateTime.now());
 
         accountRepository.save(account); //안티패턴임 없어도 업데이트 되지만 테스트시 확인용으로, 불필요한 코드가 들어가더라도 테스트가 중요
+        accountMetadataCache.evict(accountNumber); // 커밋된 뒤에 모든 인스턴스의 캐시에서 지운다
 
         return AccountDto.fromEntity(account);
     }
 
+    // 해지된 계좌는 다시 사용 상태가 되지 않으므로 캐시만 보고 바로 실패시킨다
+    private boolean validateDeleteAccount(Long userId, AccountMetadata accountMetadata) {
+        if (!Objects.equals(userId, accountMetadata.getOwnerId())) {
+            return false;
+        }
+        if (accountMetadata.getAccountStatus() == AccountStatus.UNREGISTERED) {
+            throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
+        }
+        return true;
+    }
+
     private void validateDeleteAccount(AccountUser accountUser, Account account) {
         if (!Objects.equals(accountUser.getId(), account.getAccountUser().getId())) { //객체간 비교보다는 id로 비교
             throw new AccountException(USER_ACCOUNT_UNMATCH);
@@ -99,15 +194,17 @@ public class AccountService {
         }
     }
 
-    @Transactional //lazyloading을 위함
-    public List<AccountDto> getAccountsByUserId(Long userId) {
-        AccountUser accountUser = getAccountUser(userId);
-
-        List<Account> accounts = accountRepository
-                .findByAccountUser(accountUser);
-
-        return accounts.stream().map(AccountDto::fromEntity) // = a->AccountDto.fromEntity(a), 메서드 참조
-                .collect(Collectors.toList());
+    /**
+     * 계좌번호와 잔액만 필요하므로 projection 쿼리 한 번으로 끝낸다
+     * 계좌가 하나도 없을 때만 사용자가 있는지 따로 확인한다
+     */
+    @Transactional
+    public List<AccountInfo> getAccountInfosByUserId(Long userId) {
+        List<AccountInfo> accountInfos = accountRepository.findAccountInfosByAccountUserId(userId);
+        if (accountInfos.isEmpty()) {
+            getAccountUser(userId);
+        }
+        return accountInfos;
     }
 
     private AccountUser getAccountUser(Long userId) {
@@ -0,0 +1,31 @@
+package com.example.account.service;
+
+import com.example.account.aop.AspectOrder;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * account.execution.mode=async 일 때 @AccountLock 메서드를 TransactionExecutor 에서 실행한다
+ * 가장 바깥에서 실행되기 때문에 락 대기, 재시도, DB 처리가 모두 실행기 스레드에서 일어나고
+ * 서블릿 스레드는 CompletableFuture 를 돌려준 뒤 바로 반환된다
+ * (@AccountLock 메서드는 CompletableFuture 를 반환해야 한다)
+ */
+@Aspect
+@Component
+@Order(AspectOrder.ASYNC_EXECUTION)
+@ConditionalOnProperty(name = "account.execution.mode", havingValue = "async")
+@RequiredArgsConstructor
+public class AsyncExecutionAspect {
+    private final TransactionExecutor transactionExecutor;
+
+    @Around("@annotation(com.example.account.aop.AccountLock)")
+    public Object aroundMethod(ProceedingJoinPoint pjp) {
+        return transactionExecutor.submit(pjp, RequestContextHolder.getRequestAttributes());
+    }
+}
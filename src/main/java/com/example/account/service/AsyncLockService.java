@@ -0,0 +1,16 @@
+package com.example.account.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 락을 기다리는 동안 스레드를 점유하지 않는 계좌 락
+ * 락의 소유자는 스레드가 아니라 요청이기 때문에 newOwnerId() 로 만든 값을 lock/unlock 에 같이 넘긴다
+ */
+public interface AsyncLockService {
+    long newOwnerId();
+
+    // 락을 잡지 못하면 AccountException(ACCOUNT_TRANSACTION_LOCK) 으로 실패하는 future 를 돌려준다
+    CompletableFuture<Void> lock(String accountNumber, long ownerId, long waitTime, long leaseTime);
+
+    CompletableFuture<Void> unlock(String accountNumber, long ownerId);
+}
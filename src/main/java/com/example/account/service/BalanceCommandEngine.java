@@ -0,0 +1,303 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.exception.TransactionException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 잔액 변경 명령을 모아서 한 번에 커밋하는 엔진
+ * 1. account.concurrency.mode=single-writer
+ *    계좌번호 해시로 계좌를 N 개의 단일 스레드 worker 에 나눠 배정하기 때문에
+ *    한 계좌의 명령은 항상 같은 스레드에서 들어온 순서대로 실행되고 락이 필요 없다
+ * 2. account.commit.mode=group
+ *    락(또는 optimistic) 경로는 그대로 두고, 요청들을 linger 시간 동안 모아서 커밋만 함께 한다
+ * worker 는 큐에 쌓인 명령을 한 번에 꺼내 하나의 DB 트랜잭션에서 처리하고 한 번만 커밋한다
+ * 호출한 쪽은 자기 명령이 포함된 배치가 커밋될 때까지 기다리기 때문에 응답 시점의 내구성은 건별 커밋과 같다
+ * 커밋이 실패하면 배치 전체가 롤백되므로 명령을 한 건씩 다시 처리해서 문제가 된 명령만 실패시킨다
+ * 호출한 쪽은 timeout-millis 까지만 기다리고, 종료 중이거나 worker 가 죽어도 기다리던 명령은 모두 실패로 끝난다
+ */
+@Slf4j
+@Component
+public class BalanceCommandEngine implements DisposableBean {
+    private final boolean enabled;
+    private final boolean singleWriter;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final long timeoutMillis;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountRepository accountRepository;
+    private final DistributionSummary batchSize;
+    private final List<Worker> workers = new ArrayList<>();
+
+    public BalanceCommandEngine(
+            PlatformTransactionManager transactionManager,
+            AccountRepository accountRepository,
+            MeterRegistry meterRegistry,
+            @Value("${account.concurrency.mode:lock}") String concurrencyMode,
+            @Value("${account.commit.mode:single}") String commitMode,
+            @Value("${account.balance-engine.workers:8}") int workerCount,
+            @Value("${account.balance-engine.queue-size:10000}") int queueSize,
+            @Value("${account.balance-engine.max-batch:256}") int maxBatch,
+            @Value("${account.balance-engine.linger-micros:2000}") long lingerMicros,
+            @Value("${account.balance-engine.timeout-millis:10000}") long timeoutMillis
+    ) {
+        boolean groupCommit = "group".equals(commitMode);
+        this.singleWriter = "single-writer".equals(concurrencyMode);
+        this.enabled = singleWriter || groupCommit;
+        this.maxBatch = maxBatch;
+        // single-writer 만 켰을 때는 기다리지 않고 그때까지 쌓인 명령만 모은다
+        this.lingerNanos = groupCommit ? TimeUnit.MICROSECONDS.toNanos(lingerMicros) : 0L;
+        this.timeoutMillis = timeoutMillis;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.accountRepository = accountRepository;
+        this.batchSize = DistributionSummary.builder("account.single-writer.batch.size")
+                .register(meterRegistry);
+        if (enabled) {
+            for (int i = 0; i < workerCount; i++) {
+                Worker worker = new Worker(new ArrayBlockingQueue<>(queueSize));
+                worker.thread = new Thread(worker, "balance-writer-" + i);
+                worker.thread.setDaemon(true);
+                worker.thread.start();
+                workers.add(worker);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 계좌 락 없이 worker 가 계좌를 독점하는 모드, 잔액을 바꾸는 모든 경로가 worker 를 거쳐야 한다
+    public boolean isSingleWriter() {
+        return singleWriter;
+    }
+
+    /**
+     * 계좌를 담당하는 worker 에 명령을 넘기고 커밋될 때까지 기다린다
+     * 명령에서 던진 AccountException/TransactionException 은 그대로 호출한 쪽으로 다시 던진다
+     * timeout-millis 안에 끝나지 않으면 TRANSACTION_OVERLOADED, 아직 꺼내지 않은 명령이면 worker 도 건너뛴다
+     */
+    public <T> T execute(String accountNumber, BalanceCommand<T> command) {
+        return await(submit(accountNumber, command));
+    }
+
+    /**
+     * 기다리지 않고 worker 큐에 넣기만 한다, 여러 계좌의 명령을 한꺼번에 넘기고 나중에 await 로 결과를 받는다
+     * 같은 계좌의 명령은 submit 한 순서대로 실행된다
+     */
+    public <T> CompletableFuture<T> submit(String accountNumber, BalanceCommand<T> command) {
+        Pending<T> pending = new Pending<>(command);
+        Worker worker = workers.get(Math.floorMod(accountNumber.hashCode(), workers.size()));
+        if (!worker.running || !worker.queue.offer(pending)) {
+            throw new AccountException(ErrorCode.TRANSACTION_OVERLOADED);
+        }
+        return pending.future;
+    }
+
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.completeExceptionally(new AccountException(ErrorCode.TRANSACTION_OVERLOADED));
+            throw new AccountException(ErrorCode.TRANSACTION_OVERLOADED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new AccountException(ErrorCode.TRANSACTION_OVERLOADED));
+            throw new AccountException(ErrorCode.TRANSACTION_OVERLOADED);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AccountException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * worker 를 멈추고(처리 중인 배치는 끝까지 커밋) 큐에 남은 명령은 실행하지 않고 실패시킨다
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        workers.forEach(worker -> worker.running = false);
+        for (Worker worker : workers) {
+            worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+            if (worker.thread.isAlive()) { // 커밋이 끝나지 않으면 깨워서라도 멈춘다
+                worker.thread.interrupt();
+                worker.thread.join(TimeUnit.SECONDS.toMillis(1));
+            }
+        }
+        for (Worker worker : workers) {
+            List<Pending<?>> remaining = new ArrayList<>();
+            worker.queue.drainTo(remaining);
+            fail(remaining, new AccountException(ErrorCode.TRANSACTION_OVERLOADED));
+        }
+    }
+
+    private static void fail(List<Pending<?>> pendings, Throwable cause) {
+        // 이미 끝난 명령에는 영향이 없다
+        pendings.forEach(pending -> pending.future.completeExceptionally(cause));
+    }
+
+    @FunctionalInterface
+    public interface BalanceCommand<T> {
+        T apply(Batch batch);
+    }
+
+    /**
+     * 한 번의 커밋으로 묶이는 명령들이 공유하는 상태
+     * 같은 배치 안에서 같은 계좌를 여러 번 바꿀 때 계좌를 한 번만 읽는다
+     */
+    public class Batch {
+        private final Map<String, Account> accounts = new HashMap<>();
+
+        public Account getAccount(String accountNumber) {
+            Account account = accounts.get(accountNumber);
+            if (account == null) {
+                account = accountRepository.findByAccountNumber(accountNumber)
+                        .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+                accounts.put(accountNumber, account);
+            }
+            return account;
+        }
+    }
+
+    private static class Pending<T> {
+        private final BalanceCommand<T> command;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private RuntimeException failure;
+
+        private Pending(BalanceCommand<T> command) {
+            this.command = command;
+        }
+
+        private void apply(Batch batch) {
+            result = null;
+            failure = null;
+            try {
+                result = command.apply(batch);
+            } catch (AccountException | TransactionException e) {
+                // 검증에서 실패한 명령은 잔액을 바꾸지 않았으므로 나머지 명령은 그대로 커밋한다
+                failure = e;
+            }
+        }
+
+        private void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final BlockingQueue<Pending<?>> queue;
+        private volatile boolean running = true;
+        private Thread thread;
+
+        private Worker(BlockingQueue<Pending<?>> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            List<Pending<?>> batch = new ArrayList<>(maxBatch);
+            while (running) {
+                try {
+                    Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    collect(batch);
+                    commit(batch);
+                } catch (InterruptedException e) {
+                    // 종료 중, 모아둔 명령은 실행하지 않았으므로 실패시킨다
+                    fail(batch, new AccountException(ErrorCode.TRANSACTION_OVERLOADED));
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable e) {
+                    // Error 로 죽더라도 기다리는 호출이 남지 않게 하고 worker 는 계속 큐를 비운다
+                    log.error("Balance writer failed", e);
+                    fail(batch, new AccountException(ErrorCode.INTERNAL_SERVER_ERROR));
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        // linger 시간이 지나거나 max-batch 가 찰 때까지 뒤따라 온 명령을 모은다
+        private void collect(List<Pending<?>> batch) throws InterruptedException {
+            queue.drainTo(batch, maxBatch - batch.size());
+            long deadline = System.nanoTime() + lingerNanos;
+            while (batch.size() < maxBatch) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                Pending<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+                queue.drainTo(batch, maxBatch - batch.size());
+            }
+        }
+    }
+
+    private void commit(List<Pending<?>> batch) {
+        batch.removeIf(pending -> pending.future.isDone()); // 호출한 쪽이 이미 포기한 명령은 실행하지 않는다
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSize.record(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+            batch.forEach(Pending::complete);
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            log.error("Batch commit failed, retrying {} commands one by one", batch.size(), e);
+        }
+
+        for (Pending<?> pending : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> pending.apply(new Batch()));
+                pending.complete();
+            } catch (RuntimeException e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void apply(List<Pending<?>> pendings) {
+        Batch batch = new Batch();
+        for (Pending<?> pending : pendings) {
+            pending.apply(batch);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * account.ledger.enabled=true 일 때 계좌 잔액의 기준이 되는 메모리 원장
+ * 1. 잔액 확인과 변경은 메모리(LongLongHashMap)에서 하고, 처음 보는 계좌만 Account 테이블에서 읽어온다
+ * 2. DB 커밋 직전(beforeCommit)에 바뀐 잔액을 LedgerJournal 에 PREPARED 로 남기고 fsync 한다, 실패하면 DB 트랜잭션도 롤백된다
+ *    커밋되면 COMMITTED, 롤백되면 ABORTED 를 남긴다 (fsync 는 기다리지 않는다)
+ * 3. Account.balance 는 write-behind-millis 마다 커밋된 잔액만 모아서 batch update 한다 (그 사이 계좌 조회 화면의 잔액은 늦을 수 있다)
+ * 4. snapshot-millis 마다 커밋된 잔액으로 스냅샷을 찍고 이전 journal 은 지운다, 재시작하면 스냅샷 + journal 로 복구한다
+ *    PREPARED 뒤에 결과가 남지 않은 계좌(in-doubt)는 마지막 성공 거래의 balanceSnapshot 으로 맞춘다 (거래 내역과 잔액은 같은 DB 트랜잭션에 커밋된다)
+ * DB 트랜잭션이 롤백되면 메모리에서 바꾼 잔액을 되돌린다
+ * 잔액 변경이 계좌별로 순서대로 일어나야 하므로 lock / single-writer 모드에서만,
+ * 인스턴스마다 원장을 따로 가지므로 단일 인스턴스(account.lock.mode=local)에서만 쓸 수 있다
+ */
+@Slf4j
+@Component
+public class BalanceLedger implements DisposableBean, SmartInitializingSingleton {
+    private final boolean enabled;
+    private final LongLongHashMap balances = new LongLongHashMap(1 << 16); // 진행 중인 트랜잭션의 변경까지 반영된 잔액
+    private final LongLongHashMap committedBalances = new LongLongHashMap(1 << 16); // journal 에 남긴 잔액
+    private final Map<Long, Long> preparedBalances = new HashMap<>(); // PREPARED 로 남기고 커밋/롤백을 기다리는 잔액
+    private final Map<Long, Long> inDoubt = new HashMap<>(); // 복구할 때 커밋됐는지 알 수 없던 잔액
+    private final Set<Long> dirtyAccountIds = ConcurrentHashMap.newKeySet();
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private LedgerJournal journal;
+    private ScheduledExecutorService scheduler;
+
+    public BalanceLedger(
+            PlatformTransactionManager transactionManager,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${account.ledger.enabled:false}") boolean enabled,
+            @Value("${account.concurrency.mode:lock}") String concurrencyMode,
+            @Value("${account.lock.mode:redis}") String lockMode,
+            @Value("${account.ledger.directory:./ledger}") String directory,
+            @Value("${account.ledger.write-behind-millis:1000}") long writeBehindMillis,
+            @Value("${account.ledger.snapshot-millis:60000}") long snapshotMillis
+    ) throws IOException {
+        this.enabled = enabled;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        if (!enabled) {
+            return;
+        }
+        if ("optimistic".equals(concurrencyMode)) {
+            // 잔액을 JPA 로 바꾸지 않으면 @Version 충돌이 일어나지 않는다
+            throw new IllegalStateException("account.ledger cannot be used with account.concurrency.mode=optimistic");
+        }
+        if ("redis".equals(lockMode)) {
+            // 여러 인스턴스가 각자의 원장으로 같은 계좌의 잔액을 덮어쓰게 된다
+            throw new IllegalStateException("account.ledger cannot be used with account.lock.mode=redis");
+        }
+
+        synchronized (balances) {
+            journal = LedgerJournal.recover(Paths.get(directory), committedBalances, inDoubt);
+            // 복구한 잔액은 Account 테이블보다 최신일 수 있으므로 바로 반영한다
+            committedBalances.forEach((accountId, balance) -> {
+                balances.put(accountId, balance);
+                dirtyAccountIds.add(accountId);
+            });
+        }
+        Gauge.builder("account.ledger.accounts", balances, LongLongHashMap::size)
+                .register(meterRegistry);
+        Gauge.builder("account.ledger.dirty", dirtyAccountIds, Set::size)
+                .register(meterRegistry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ledger-"));
+        scheduler.scheduleWithFixedDelay(this::writeBehind,
+                writeBehindMillis, writeBehindMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::snapshot,
+                snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * in-doubt 계좌의 잔액을 DB 에 커밋된 마지막 성공 거래로 맞추고 journal 에 결과를 남긴다
+     * 테이블이 준비된 뒤에 읽어야 하므로 다른 빈이 모두 만들어진 뒤, 요청을 받기 전에 실행한다
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled || inDoubt.isEmpty()) {
+            return;
+        }
+        long seq = 0L;
+        synchronized (balances) {
+            for (Map.Entry<Long, Long> entry : inDoubt.entrySet()) {
+                long accountId = entry.getKey();
+                List<Long> committed = jdbcTemplate.query(
+                        "select balance_snapshot from transaction where account_id = ? and transaction_result_type = 'S'"
+                                + " order by transacted_at desc, id desc limit 1",
+                        (rs, rowNum) -> rs.getLong(1), accountId);
+                if (committed.isEmpty()) { // 성공한 거래가 한 번도 없으면 PREPARED 도 커밋되지 않았다
+                    seq = journal.appendAborted(accountId);
+                    continue;
+                }
+                long balance = committed.get(0);
+                log.info("Ledger resolved in-doubt accountId : {}, prepared : {}, committed : {}",
+                        accountId, entry.getValue(), balance);
+                committedBalances.put(accountId, balance);
+                balances.put(accountId, balance);
+                dirtyAccountIds.add(accountId);
+                seq = journal.append(accountId, balance);
+            }
+            inDoubt.clear();
+        }
+        journal.sync(seq);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getBalance(Account account) {
+        synchronized (balances) {
+            return load(account);
+        }
+    }
+
+    /**
+     * 잔액에 delta 를 더하고 바뀐 잔액을 돌려준다, 잔액이 모자라면 AMOUNT_EXCEED_BALANCE
+     * 트랜잭션 안이면 커밋 직전에 journal 에 남기고, 트랜잭션 밖이면 journal 이 디스크에 내려간 뒤에 반환한다
+     */
+    public long add(Account account, long delta) {
+        long accountId = account.getId();
+        long previous;
+        long balance;
+        synchronized (balances) {
+            previous = load(account);
+            balance = previous + delta;
+            if (balance < 0) {
+                throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+            }
+            balances.put(accountId, balance);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            registerChange(accountId, previous, balance);
+        } else {
+            journal.sync(commit(Collections.singletonList(new long[]{accountId, previous, balance})));
+        }
+        return balance;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        scheduler.shutdown();
+        writeBehind();
+        snapshot();
+        journal.close();
+    }
+
+    private long load(Account account) {
+        long accountId = account.getId();
+        if (!balances.containsKey(accountId)) {
+            balances.put(accountId, account.getBalance());
+            committedBalances.put(accountId, account.getBalance());
+        }
+        return balances.get(accountId, 0L);
+    }
+
+    /**
+     * 한 트랜잭션에서 바꾼 잔액들을 모아두었다가
+     * 커밋 직전에 바꾼 순서대로 PREPARED 로 남기고 디스크에 내린다, 여기서 던진 예외는 DB 트랜잭션을 롤백시킨다
+     * 커밋되면 COMMITTED 를 남기고, 롤백되면 나중에 바꾼 것부터 메모리에서 되돌리고 ABORTED 를 남긴다
+     */
+    private void registerChange(long accountId, long previous, long balance) {
+        @SuppressWarnings("unchecked")
+        Deque<long[]> changes = (Deque<long[]>) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            Deque<long[]> newChanges = new ArrayDeque<>();
+            TransactionSynchronizationManager.bindResource(this, newChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean prepared;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    prepared = true;
+                    journal.sync(prepare(newChanges));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BalanceLedger.this);
+                    if (status == STATUS_COMMITTED) {
+                        try {
+                            commit(newChanges);
+                        } catch (RuntimeException e) { // PREPARED 는 디스크에 있으므로 복구할 때 DB 로 맞춘다
+                            log.error("Ledger failed to mark committed changes", e);
+                        }
+                        return;
+                    }
+                    newChanges.descendingIterator()
+                            .forEachRemaining(change -> rollback(change[0], change[1], change[2]));
+                    if (prepared && status == STATUS_ROLLED_BACK) { // STATUS_UNKNOWN 이면 복구할 때 DB 로 맞춘다
+                        try {
+                            abort(newChanges);
+                        } catch (RuntimeException e) {
+                            log.error("Ledger failed to mark aborted changes", e);
+                        }
+                    }
+                }
+            });
+            changes = newChanges;
+        }
+        changes.addLast(new long[]{accountId, previous, balance});
+    }
+
+    private long prepare(Collection<long[]> changes) {
+        long seq = 0L;
+        synchronized (balances) {
+            for (long[] change : changes) {
+                preparedBalances.put(change[0], change[2]);
+                seq = journal.appendPrepared(change[0], change[2]);
+            }
+        }
+        return seq;
+    }
+
+    // 커밋된 잔액을 journal 에 남긴다, 디스크에 내리는 것은 부른 쪽에서 정한다
+    private long commit(Collection<long[]> changes) {
+        long seq = 0L;
+        synchronized (balances) {
+            for (long[] change : changes) {
+                committedBalances.put(change[0], change[2]);
+                preparedBalances.remove(change[0]);
+                seq = journal.append(change[0], change[2]);
+            }
+        }
+        changes.forEach(change -> dirtyAccountIds.add(change[0]));
+        return seq;
+    }
+
+    private void abort(Collection<long[]> changes) {
+        synchronized (balances) {
+            for (long[] change : changes) {
+                if (preparedBalances.remove(change[0]) != null) {
+                    journal.appendAborted(change[0]);
+                }
+            }
+        }
+    }
+
+    private void rollback(long accountId, long previous, long balance) {
+        synchronized (balances) {
+            if (balances.get(accountId, previous) != balance) { // 그 사이 다른 변경이 있었다면 건드리지 않는다
+                log.error("Ledger balance changed before rollback, accountId : {}", accountId);
+                return;
+            }
+            balances.put(accountId, previous);
+        }
+    }
+
+    private void writeBehind() {
+        List<Object[]> rows = new ArrayList<>();
+        List<Long> accountIds = new ArrayList<>();
+        for (Long accountId : dirtyAccountIds) {
+            dirtyAccountIds.remove(accountId);
+            accountIds.add(accountId);
+        }
+        if (accountIds.isEmpty()) {
+            return;
+        }
+        synchronized (balances) {
+            for (Long accountId : accountIds) {
+                rows.add(new Object[]{committedBalances.get(accountId, 0L), accountId});
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate("update account set balance = ? where id = ?", rows));
+        } catch (RuntimeException e) {
+            log.error("Ledger write-behind failed for {} accounts", accountIds.size(), e);
+            dirtyAccountIds.addAll(accountIds); // 다음 번에 다시 쓴다
+        }
+    }
+
+    private void snapshot() {
+        try {
+            LongLongHashMap copy;
+            long seq;
+            long preparedSeq = 0L;
+            synchronized (balances) {
+                copy = committedBalances.copy();
+                seq = journal.rotate();
+                // 아직 결과가 없는 PREPARED 는 지워질 journal 에만 있으므로 새 journal 에 다시 남긴다
+                for (Map.Entry<Long, Long> prepared : preparedBalances.entrySet()) {
+                    preparedSeq = journal.appendPrepared(prepared.getKey(), prepared.getValue());
+                }
+            }
+            journal.sync(preparedSeq);
+            journal.writeSnapshot(copy, seq);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Ledger snapshot failed", e);
+        }
+    }
+}
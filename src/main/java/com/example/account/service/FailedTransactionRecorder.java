@@ -0,0 +1,141 @@
+package com.example.account.service;
+
+import com.example.account.dto.FailedTransaction;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+
+/**
+ * 실패 거래를 요청 스레드가 아닌 writer 스레드에서 모아서 저장한다
+ * 컨트롤러는 큐에 넣고 바로 에러 응답을 돌려주므로 계좌 락도 그만큼 빨리 풀린다
+ * 큐가 가득 차면 offer-timeout 만큼 기다리고(backpressure), 그래도 자리가 없으면 요청 스레드에서 직접 저장한다
+ * 없는 계좌의 실패는 남길 계좌가 없으므로 저장하지 않고 건너뛴다
+ * 지표 : account.failed-transaction.queue, .overflow, .skipped, .batch.size
+ */
+@Slf4j
+@Component
+public class FailedTransactionRecorder implements DisposableBean {
+    private final TransactionService transactionService;
+    private final boolean async;
+    private final int maxBatch;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<FailedTransaction> queue;
+    private final Counter overflow;
+    private final Counter skipped;
+    private final DistributionSummary batchSize;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public FailedTransactionRecorder(
+            TransactionService transactionService,
+            MeterRegistry meterRegistry,
+            @Value("${account.failed-transaction.async:true}") boolean async,
+            @Value("${account.failed-transaction.queue-size:10000}") int queueSize,
+            @Value("${account.failed-transaction.max-batch:500}") int maxBatch,
+            @Value("${account.failed-transaction.offer-timeout-millis:10}") long offerTimeoutMillis
+    ) {
+        this.transactionService = transactionService;
+        this.async = async;
+        this.maxBatch = maxBatch;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.overflow = Counter.builder("account.failed-transaction.overflow").register(meterRegistry);
+        this.skipped = Counter.builder("account.failed-transaction.skipped").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("account.failed-transaction.batch.size")
+                .register(meterRegistry);
+        Gauge.builder("account.failed-transaction.queue", queue, BlockingQueue::size).register(meterRegistry);
+        if (async) {
+            writer = new Thread(this::run, "failed-transaction-writer");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    public void recordUse(String accountNumber, Long amount) {
+        record(USE, accountNumber, amount);
+    }
+
+    public void recordCancle(String accountNumber, Long amount) {
+        record(CANCEL, accountNumber, amount);
+    }
+
+    private void record(TransactionType transactionType, String accountNumber, Long amount) {
+        FailedTransaction failedTransaction =
+                new FailedTransaction(transactionType, accountNumber, amount, LocalDateTime.now());
+        if (async) {
+            try {
+                if (queue.offer(failedTransaction, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            overflow.increment();
+        }
+        save(Collections.singletonList(failedTransaction));
+    }
+
+    private void run() {
+        List<FailedTransaction> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                FailedTransaction first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                save(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void save(List<FailedTransaction> batch) {
+        batchSize.record(batch.size());
+        try {
+            int saved = transactionService.saveFailedTransactions(batch);
+            skipped.increment(batch.size() - saved);
+        } catch (RuntimeException e) {
+            // 실패 기록을 남기지 못했다고 응답이나 writer 가 멈추지 않도록 로그만 남긴다
+            log.error("Failed to save {} failed transactions", batch.size(), e);
+        }
+    }
+
+    // 종료할 때 큐에 남은 실패 거래까지 저장한다
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        List<FailedTransaction> remaining = new ArrayList<>(maxBatch);
+        while (queue.drainTo(remaining, maxBatch) > 0) {
+            save(remaining);
+            remaining.clear();
+        }
+    }
+}
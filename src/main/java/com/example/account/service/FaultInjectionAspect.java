@@ -0,0 +1,92 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.AspectOrder;
+import com.example.account.config.FaultInjectionProperties;
+import com.example.account.exception.AccountException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 부하 테스트에서 락을 잡은 채로 지연/장애를 재현하기 위한 Aspect
+ * fault-injection 프로필에서만 빈으로 등록되기 때문에 운영 경로에는 인위적인 지연이 전혀 없다
+ */
+@Slf4j
+@Aspect
+@Component
+@Profile("fault-injection")
+@Order(AspectOrder.FAULT_INJECTION) // LockAopAspect 안쪽에서 실행
+@RequiredArgsConstructor
+public class FaultInjectionAspect {
+    private final FaultInjectionProperties faultInjectionProperties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)")
+    public Object aroundMethod(
+            ProceedingJoinPoint pjp,
+            AccountLockIdInterface request
+    ) throws Throwable {
+        String endpoint = getRequestUri();
+        for (FaultInjectionProperties.Rule rule : faultInjectionProperties.getRules()) {
+            if (matches(rule, endpoint, request.getAccountNumber())) {
+                inject(rule, request.getAccountNumber());
+                break; // 먼저 선언된 규칙 하나만 적용
+            }
+        }
+        return pjp.proceed();
+    }
+
+    private boolean matches(FaultInjectionProperties.Rule rule, String endpoint, String accountNumber) {
+        // 요청 컨텍스트 밖에서 호출된 경우에는 endpoint 조건을 보지 않는다
+        return (endpoint == null || pathMatcher.match(rule.getEndpoint(), endpoint))
+                && rule.getAccountPattern().matcher(accountNumber).matches()
+                && ThreadLocalRandom.current().nextDouble() < rule.getProbability();
+    }
+
+    private void inject(FaultInjectionProperties.Rule rule, String accountNumber) throws InterruptedException {
+        long delayMillis = getDelayMillis(rule);
+        log.debug("Injecting {}ms delay for accountNumber : {}", delayMillis, accountNumber);
+        if (delayMillis > 0) {
+            Thread.sleep(delayMillis);
+        }
+        if (rule.getErrorCode() != null) {
+            throw new AccountException(rule.getErrorCode());
+        }
+    }
+
+    private long getDelayMillis(FaultInjectionProperties.Rule rule) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (rule.getDistribution()) {
+            case UNIFORM:
+                return rule.getMaxDelayMillis() > rule.getDelayMillis()
+                        ? random.nextLong(rule.getDelayMillis(), rule.getMaxDelayMillis() + 1)
+                        : rule.getDelayMillis();
+            case EXPONENTIAL:
+                long delay = (long) (-rule.getDelayMillis() * Math.log(1.0 - random.nextDouble()));
+                return rule.getMaxDelayMillis() > 0 ? Math.min(delay, rule.getMaxDelayMillis()) : delay;
+            case FIXED:
+            default:
+                return rule.getDelayMillis();
+        }
+    }
+
+    private String getRequestUri() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest().getRequestURI();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.account.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Space-Saving 알고리즘으로 가장 많이 등장한 계좌번호 top-N 을 추정한다
+ * capacity 개의 카운터만 유지하므로 계좌가 아무리 많아도 메모리가 일정하다
+ * 카운터가 가득 차면 가장 작은 카운터를 새 계좌에 넘겨주고, 넘겨받은 값은 error 로 기록한다 (실제 횟수 >= count - error)
+ * 카운터는 같은 count 끼리 bucket 으로 묶어 count 오름차순으로 이어두므로(Stream-Summary) 증가와 교체 모두 O(1) 이다
+ * 락을 잡을 때마다 불리므로 스레드별로 나눈 stripe 에 따로 세고, top 을 조회할 때만 합친다
+ */
+public class HotAccountSketch {
+    private final Stripe[] stripes;
+
+    public HotAccountSketch(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    public HotAccountSketch(int capacity, int stripeCount) {
+        int size = 1;
+        while (size < stripeCount) { // 스레드 id 를 비트 연산으로 나누도록 2의 거듭제곱으로 맞춘다
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    public void add(String accountNumber) {
+        stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)].add(accountNumber);
+    }
+
+    /**
+     * stripe 들을 합쳐서 top-N 을 구한다
+     * 어떤 stripe 에 없는 계좌는 그 stripe 의 최소 카운터만큼 등장했을 수 있으므로 count 와 error 에 함께 더한다
+     */
+    public List<Entry> top(int limit) {
+        List<Map<String, Counter>> snapshots = new ArrayList<>(stripes.length);
+        long[] minCounts = new long[stripes.length];
+        Map<String, Counter> merged = new HashMap<>();
+        for (int i = 0; i < stripes.length; i++) {
+            Map<String, Counter> snapshot = stripes[i].snapshot();
+            snapshots.add(snapshot);
+            minCounts[i] = stripes[i].isFull(snapshot) ? minCount(snapshot) : 0L;
+            snapshot.keySet().forEach(accountNumber -> merged.put(accountNumber, new Counter(0, 0)));
+        }
+        merged.forEach((accountNumber, total) -> {
+            for (int i = 0; i < snapshots.size(); i++) {
+                Counter counter = snapshots.get(i).get(accountNumber);
+                total.count += counter != null ? counter.count : minCounts[i];
+                total.error += counter != null ? counter.error : minCounts[i];
+            }
+        });
+        return merged.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, Counter> entry) -> entry.getValue().count).reversed())
+                .limit(limit)
+                .map(entry -> new Entry(entry.getKey(), entry.getValue().count, entry.getValue().error))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static long minCount(Map<String, Counter> counters) {
+        return counters.values().stream().mapToLong(counter -> counter.count).min().orElse(0L);
+    }
+
+    private static class Stripe {
+        private final int capacity;
+        private final Map<String, Node> counters;
+        private Bucket minBucket; // 가장 작은 count 의 bucket, next 로 갈수록 count 가 커진다
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+            this.counters = new HashMap<>(capacity * 2);
+        }
+
+        private synchronized void add(String accountNumber) {
+            Node node = counters.get(accountNumber);
+            if (node != null) {
+                increment(node);
+                return;
+            }
+            if (counters.size() < capacity) {
+                node = new Node(accountNumber);
+                counters.put(accountNumber, node);
+                if (minBucket == null || minBucket.count != 1) {
+                    Bucket first = new Bucket(1);
+                    first.next = minBucket;
+                    if (minBucket != null) {
+                        minBucket.prev = first;
+                    }
+                    minBucket = first;
+                }
+                minBucket.push(node);
+                return;
+            }
+            // 가장 작은 카운터를 새 계좌에 넘겨준다, 노드를 그대로 다시 쓰므로 새로 만드는 객체가 없다
+            node = minBucket.head;
+            counters.remove(node.accountNumber);
+            node.accountNumber = accountNumber;
+            node.error = minBucket.count;
+            counters.put(accountNumber, node);
+            increment(node);
+        }
+
+        // 노드를 count + 1 인 bucket 으로 옮긴다, 다음 bucket 이 count + 1 이 아니면 그 사이에 만든다
+        private void increment(Node node) {
+            Bucket bucket = node.bucket;
+            long count = bucket.count + 1;
+            Bucket next = bucket.next;
+            if (bucket.head == node && node.next == null) { // bucket 에 혼자 있다
+                if (next == null || next.count != count) { // 순서가 그대로이므로 bucket 의 count 만 올린다
+                    bucket.count = count;
+                    return;
+                }
+                unlink(bucket);
+                next.push(node);
+                return;
+            }
+            bucket.remove(node);
+            if (next == null || next.count != count) {
+                next = new Bucket(count);
+                next.prev = bucket;
+                next.next = bucket.next;
+                if (bucket.next != null) {
+                    bucket.next.prev = next;
+                }
+                bucket.next = next;
+            }
+            next.push(node);
+        }
+
+        private void unlink(Bucket bucket) {
+            if (bucket.prev != null) {
+                bucket.prev.next = bucket.next;
+            } else {
+                minBucket = bucket.next;
+            }
+            if (bucket.next != null) {
+                bucket.next.prev = bucket.prev;
+            }
+        }
+
+        private synchronized Map<String, Counter> snapshot() {
+            Map<String, Counter> copy = new HashMap<>(counters.size() * 2);
+            counters.forEach((accountNumber, node) ->
+                    copy.put(accountNumber, new Counter(node.bucket.count, node.error)));
+            return copy;
+        }
+
+        private boolean isFull(Map<String, Counter> snapshot) {
+            return snapshot.size() >= capacity;
+        }
+    }
+
+    // 같은 count 의 노드들, 노드끼리는 양방향으로 이어져 있어서 어느 노드든 O(1) 로 뺄 수 있다
+    private static class Bucket {
+        private long count;
+        private Node head;
+        private Bucket prev;
+        private Bucket next;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+
+        private void push(Node node) {
+            node.bucket = this;
+            node.prev = null;
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            }
+            head = node;
+        }
+
+        private void remove(Node node) {
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    // count 는 속한 bucket 의 count 다
+    private static class Node {
+        private String accountNumber;
+        private long error;
+        private Bucket bucket;
+        private Node prev;
+        private Node next;
+
+        private Node(String accountNumber) {
+            this.accountNumber = accountNumber;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Counter {
+        private long count;
+        private long error;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final String accountNumber;
+        private final long count;
+        private final long error;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.account.service;
+
+import com.example.account.aop.AspectOrder;
+import com.example.account.aop.Idempotent;
+import com.example.account.exception.AccountException;
+import com.example.account.exception.TransactionException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import static com.example.account.type.ErrorCode.*;
+
+/**
+ * @Idempotent 메서드에 Idempotency-Key 헤더가 있으면
+ * 1. 키를 처리 중으로 선점하고 처리한 뒤 응답(또는 비즈니스 실패)을 저장한다
+ * 2. 같은 키의 재요청은 락, DB 를 거치지 않고 저장된 응답을 그대로 돌려준다 (실패 거래도 다시 남기지 않는다)
+ * 가장 바깥에서 실행되고, CompletableFuture 응답은 완료된 뒤에 결과를 저장한다
+ * 지표 : account.idempotency{result=replayed|rejected}
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(AspectOrder.IDEMPOTENCY)
+public class IdempotencyAspect {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // 잠시 뒤에 다시 보내면 성공할 수 있는 실패는 결과로 저장하지 않는다
+    private static final Set<ErrorCode> RETRYABLE_ERRORS =
+            EnumSet.of(ACCOUNT_TRANSACTION_LOCK, TRANSACTION_OVERLOADED, INTERNAL_SERVER_ERROR);
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    public IdempotencyAspect(
+            IdempotencyStore idempotencyStore,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry
+    ) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.replayed = Counter.builder("account.idempotency")
+                .tag("result", "replayed").register(meterRegistry);
+        this.rejected = Counter.builder("account.idempotency")
+                .tag("result", "rejected").register(meterRegistry);
+    }
+
+    @Around("@annotation(idempotent) && args(request)")
+    public Object aroundMethod(
+            ProceedingJoinPoint pjp,
+            Idempotent idempotent,
+            Object request
+    ) throws Throwable {
+        String idempotencyKey = getIdempotencyKey();
+        if (idempotencyKey == null) {
+            return pjp.proceed();
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+
+        String key = idempotent.name() + ":" + idempotencyKey;
+        String fingerprint = objectMapper.writeValueAsString(request);
+        IdempotencyRecord idempotencyRecord = idempotencyStore.reserve(key, fingerprint);
+        if (idempotencyRecord != null) {
+            return replay(pjp, idempotencyRecord, fingerprint);
+        }
+
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable t) {
+            record(key, fingerprint, null, t);
+            throw t;
+        }
+        if (result instanceof CompletableFuture) {
+            // 결과를 저장한 뒤에 응답이 나가도록 저장까지 끝나는 future 를 돌려준다
+            return ((CompletableFuture<?>) result).whenComplete(
+                    (response, t) -> record(key, fingerprint, response, t));
+        }
+        record(key, fingerprint, result, null);
+        return result;
+    }
+
+    private Object replay(ProceedingJoinPoint pjp, IdempotencyRecord idempotencyRecord, String fingerprint) {
+        if (!idempotencyRecord.getFingerprint().equals(fingerprint)) {
+            rejected.increment();
+            throw new AccountException(IDEMPOTENCY_KEY_REUSED);
+        }
+        if (!idempotencyRecord.isCompleted()) {
+            rejected.increment();
+            throw new AccountException(IDEMPOTENT_REQUEST_IN_PROGRESS);
+        }
+
+        replayed.increment();
+        ErrorCode errorCode = idempotencyRecord.getErrorCode();
+        if (errorCode != null) {
+            throw idempotencyRecord.isTransactionError()
+                    ? new TransactionException(errorCode)
+                    : new AccountException(errorCode);
+        }
+        Class<?> returnType = ((MethodSignature) pjp.getSignature()).getReturnType();
+        return CompletionStage.class.isAssignableFrom(returnType)
+                ? CompletableFuture.completedFuture(idempotencyRecord.getResponse())
+                : idempotencyRecord.getResponse();
+    }
+
+    private void record(String key, String fingerprint, Object response, Throwable t) {
+        if (t == null) {
+            idempotencyStore.complete(key, IdempotencyRecord.success(fingerprint, response));
+            return;
+        }
+
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        ErrorCode errorCode = null;
+        if (cause instanceof AccountException) {
+            errorCode = ((AccountException) cause).getErrorCode();
+        } else if (cause instanceof TransactionException) {
+            errorCode = ((TransactionException) cause).getErrorCode();
+        }
+
+        if (errorCode == null || RETRYABLE_ERRORS.contains(errorCode)) {
+            idempotencyStore.release(key);
+        } else {
+            idempotencyStore.complete(key, IdempotencyRecord.failure(
+                    fingerprint, errorCode, cause instanceof TransactionException));
+        }
+    }
+
+    private String getIdempotencyKey() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        return ((ServletRequestAttributes) requestAttributes).getRequest().getHeader(IDEMPOTENCY_KEY_HEADER);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.account.service;
+
+import com.example.account.type.ErrorCode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * Idempotency-Key 하나에 대해 저장해 두는 처리 결과
+ * 처리 중 -> 성공 응답 또는 비즈니스 실패(ErrorCode) 로 한 번만 바뀐다
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class IdempotencyRecord implements Serializable {
+    private final String fingerprint; // 같은 키로 다른 요청을 보냈는지 확인하기 위한 요청 본문
+    private final boolean completed;
+    private final Object response;
+    private final ErrorCode errorCode;
+    private final boolean transactionError; // TransactionException 이었는지, 재요청에도 같은 예외로 응답한다
+
+    public static IdempotencyRecord inProgress(String fingerprint) {
+        return new IdempotencyRecord(fingerprint, false, null, null, false);
+    }
+
+    public static IdempotencyRecord success(String fingerprint, Object response) {
+        return new IdempotencyRecord(fingerprint, true, response, null, false);
+    }
+
+    public static IdempotencyRecord failure(String fingerprint, ErrorCode errorCode, boolean transactionError) {
+        return new IdempotencyRecord(fingerprint, true, null, errorCode, transactionError);
+    }
+}
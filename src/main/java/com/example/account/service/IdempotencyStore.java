@@ -0,0 +1,17 @@
+package com.example.account.service;
+
+/**
+ * Idempotency-Key 별 처리 결과 저장소
+ */
+public interface IdempotencyStore {
+    /**
+     * 키를 처리 중으로 선점한다
+     * 선점했으면 null, 이미 있는 키면 저장되어 있던 기록을 돌려준다
+     */
+    IdempotencyRecord reserve(String key, String fingerprint);
+
+    void complete(String key, IdempotencyRecord idempotencyRecord);
+
+    // 다시 시도해도 되는 실패(락 대기 초과 등)는 키를 지워서 재요청이 처음부터 처리되게 한다
+    void release(String key);
+}
@@ -0,0 +1,247 @@
+package com.example.account.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * BalanceLedger 의 잔액 변경을 남기는 append-only 로그와 스냅샷 파일
+ * 기록 하나는 (seq, 종류, accountId, 바뀐 잔액) 32바이트 고정 길이라서 마지막 값만 다시 넣으면 복구된다
+ * 종류
+ * - COMMITTED : 확정된 잔액
+ * - PREPARED : DB 커밋 직전에 남긴 잔액, 뒤에 같은 계좌의 COMMITTED / ABORTED 가 없으면 커밋됐는지 알 수 없다 (in-doubt)
+ * - ABORTED : PREPARED 로 남긴 변경이 롤백됐다
+ * 파일 구성
+ * - journal-{시작 seq}.log : 스냅샷을 찍을 때마다 새 파일로 바꾼다
+ * - snapshot.bin : 마지막 seq, 항목 수, (accountId, 잔액) 목록
+ * fsync 는 sync(seq) 를 부른 스레드들 중 하나가 그때까지 쓴 기록을 한 번에 내린다 (group fsync)
+ */
+@Slf4j
+public class LedgerJournal implements AutoCloseable {
+    private static final int RECORD_SIZE = Long.BYTES * 4;
+    private static final long COMMITTED = 0L;
+    private static final long PREPARED = 1L;
+    private static final long ABORTED = 2L;
+    private static final String SNAPSHOT = "snapshot.bin";
+
+    private final Path directory;
+    private final Object syncLock = new Object();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private FileChannel channel;
+    private volatile long writtenSeq;
+    private volatile long syncedSeq;
+
+    private LedgerJournal(Path directory, long lastSeq) throws IOException {
+        this.directory = directory;
+        this.writtenSeq = lastSeq;
+        this.syncedSeq = lastSeq;
+        this.channel = openJournal(lastSeq + 1);
+    }
+
+    /**
+     * 스냅샷을 읽고 그 뒤의 기록을 다시 적용해서 balances 를 채운 뒤 새 journal 파일을 연다
+     * 커밋됐는지 알 수 없는 마지막 PREPARED 기록은 inDoubt 에 (accountId, 잔액) 으로 돌려준다
+     * 장애로 마지막 기록이 덜 쓰였으면 그 기록은 버린다
+     */
+    public static LedgerJournal recover(
+            Path directory, LongLongHashMap balances, Map<Long, Long> inDoubt
+    ) throws IOException {
+        Files.createDirectories(directory);
+        long snapshotSeq = readSnapshot(directory.resolve(SNAPSHOT), balances);
+        long lastSeq = snapshotSeq;
+        for (Path journal : listJournals(directory)) {
+            lastSeq = Math.max(lastSeq, replay(journal, snapshotSeq, balances, inDoubt));
+        }
+        log.info("Ledger recovered {} accounts up to seq {}, {} in doubt", balances.size(), lastSeq, inDoubt.size());
+        return new LedgerJournal(directory, lastSeq);
+    }
+
+    // 호출하는 쪽에서 잔액 변경과 같은 순서로 부르도록 잠가야 한다
+    public long append(long accountId, long balance) {
+        return append(COMMITTED, accountId, balance);
+    }
+
+    public long appendPrepared(long accountId, long balance) {
+        return append(PREPARED, accountId, balance);
+    }
+
+    public long appendAborted(long accountId) {
+        return append(ABORTED, accountId, 0L);
+    }
+
+    private synchronized long append(long kind, long accountId, long balance) {
+        long seq = writtenSeq + 1;
+        record.clear();
+        record.putLong(seq).putLong(kind).putLong(accountId).putLong(balance).flip();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writtenSeq = seq;
+        return seq;
+    }
+
+    public void sync(long seq) {
+        if (syncedSeq >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSeq >= seq) { // 기다리는 동안 다른 스레드가 내려줬다
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = writtenSeq;
+                current = channel;
+            }
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            syncedSeq = target;
+        }
+    }
+
+    /**
+     * 지금까지의 기록을 내리고 새 journal 파일로 바꾼다
+     * 반환한 seq 까지의 상태를 스냅샷으로 남기면 그 이전 journal 파일은 지워도 된다
+     */
+    public long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                syncedSeq = writtenSeq;
+                channel = openJournal(writtenSeq + 1);
+                return writtenSeq;
+            }
+        }
+    }
+
+    public void writeSnapshot(LongLongHashMap balances, long seq) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putLong(seq).putInt(balances.size());
+            balances.forEach((accountId, balance) -> {
+                if (buffer.remaining() < Long.BYTES * 2) {
+                    flush(out, buffer);
+                }
+                buffer.putLong(accountId).putLong(balance);
+            });
+            flush(out, buffer);
+            out.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE);
+
+        // 스냅샷에 모두 포함된 journal 파일은 지운다
+        for (Path journal : listJournals(directory)) {
+            if (startSeqOf(journal) <= seq) {
+                Files.delete(journal);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    // 같은 이름의 파일이 있다면 온전한 기록이 하나도 없는 파일이므로(있었다면 startSeq 가 더 컸다) 비우고 쓴다
+    private FileChannel openJournal(long startSeq) throws IOException {
+        return FileChannel.open(directory.resolve("journal-" + startSeq + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static long readSnapshot(Path snapshot, LongLongHashMap balances) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return 0L;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        long seq = buffer.getLong();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            balances.put(buffer.getLong(), buffer.getLong());
+        }
+        return seq;
+    }
+
+    private static long replay(
+            Path journal, long afterSeq, LongLongHashMap balances, Map<Long, Long> inDoubt
+    ) throws IOException {
+        long lastSeq = afterSeq;
+        try (FileChannel in = FileChannel.open(journal, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            while (in.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    long seq = buffer.getLong();
+                    long kind = buffer.getLong();
+                    long accountId = buffer.getLong();
+                    long balance = buffer.getLong();
+                    if (seq <= afterSeq) {
+                        continue;
+                    }
+                    if (kind == PREPARED) {
+                        inDoubt.put(accountId, balance);
+                    } else {
+                        inDoubt.remove(accountId); // 계좌의 변경은 차례로 일어나므로 앞의 PREPARED 는 끝났다
+                        if (kind == COMMITTED) {
+                            balances.put(accountId, balance);
+                        }
+                    }
+                    lastSeq = Math.max(lastSeq, seq);
+                }
+                buffer.compact(); // 덜 읽은 기록은 다음 read 에서 이어 붙인다
+            }
+        }
+        return lastSeq;
+    }
+
+    private static List<Path> listJournals(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().matches("journal-\\d+\\.log"))
+                    .sorted((a, b) -> Long.compare(startSeqOf(a), startSeqOf(b)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long startSeqOf(Path journal) {
+        String name = journal.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
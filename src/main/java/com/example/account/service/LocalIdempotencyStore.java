@@ -0,0 +1,49 @@
+package com.example.account.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 단일 인스턴스 배포용, 크기와 TTL 이 정해진 Caffeine 캐시에 결과를 둔다
+ * 프로세스가 죽으면 처리 중 표시도 같이 사라지므로 in-progress-ttl 은 쓰지 않는다
+ */
+@Component
+@ConditionalOnProperty(name = "account.idempotency.store", havingValue = "local")
+public class LocalIdempotencyStore implements IdempotencyStore {
+    private final Cache<String, IdempotencyRecord> cache;
+
+    public LocalIdempotencyStore(
+            MeterRegistry meterRegistry,
+            @Value("${account.idempotency.maximum-size:100000}") long maximumSize,
+            @Value("${account.idempotency.ttl:86400000}") long ttl
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    @Override
+    public IdempotencyRecord reserve(String key, String fingerprint) {
+        return cache.asMap().putIfAbsent(key, IdempotencyRecord.inProgress(fingerprint));
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord idempotencyRecord) {
+        cache.put(key, idempotencyRecord);
+    }
+
+    @Override
+    public void release(String key) {
+        cache.invalidate(key);
+    }
+}
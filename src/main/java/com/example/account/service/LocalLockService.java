@@ -0,0 +1,67 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 단일 인스턴스 배포용 JVM 내부 락
+ * 계좌마다 락 객체를 만들지 않고 고정 크기 ReentrantLock 배열에 락 키의 해시로 나눠 담는다 (striped lock)
+ * 다른 계좌가 같은 stripe 에 걸리면 잠깐 같이 기다릴 수 있지만 메모리가 계좌 수와 무관하게 일정하다
+ * 프로세스가 죽으면 락도 함께 사라지므로 Redis 의 lease time 에 해당하는 개념은 없다 (leaseTime 은 무시)
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.lock.mode", havingValue = "local")
+public class LocalLockService implements LockService {
+    private final ReentrantLock[] locks;
+
+    public LocalLockService(@Value("${account.lock.stripes:1024}") int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1; // 2의 거듭제곱으로 올림
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void lock(String accountNumber, long waitTime, long leaseTime) {
+        log.debug("Trying lock for accountNumber : {}", accountNumber);
+        try {
+            if (!getLock(accountNumber).tryLock(waitTime, TimeUnit.MILLISECONDS)) {
+                log.error("======Lock acquisition failed=====");
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    @Override
+    public void unlock(String accountNumber) {
+        log.debug("Unlock for accountNumber : {}", accountNumber);
+        getLock(accountNumber).unlock();
+    }
+
+    // 실제로 잡는 것은 stripe 이므로 stripe 번호 순서로 잡는다, 자릿수를 맞춰서 문자열 순서가 번호 순서가 되게 한다
+    @Override
+    public String getLockOrderKey(String accountNumber) {
+        return String.format("%010d", getStripe(accountNumber));
+    }
+
+    private ReentrantLock getLock(String accountNumber) {
+        return locks[getStripe(accountNumber)];
+    }
+
+    private int getStripe(String accountNumber) {
+        int hash = LockService.getLockKey(accountNumber).hashCode();
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+}
@@ -1,39 +1,131 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.AccountLockIdsInterface;
+import com.example.account.aop.AspectOrder;
+import com.example.account.aop.LockPolicy;
+import com.example.account.config.AccountLockProperties;
+import com.example.account.exception.AccountException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
 @Aspect
 @Component
 @Slf4j
+@Order(AspectOrder.ACCOUNT_LOCK)
+// reactive 실행 모드에서는 ReactiveLockAopAspect 가 락을 잡는다
+@ConditionalOnExpression("'${account.concurrency.mode:lock}' == 'lock' and '${account.execution.mode:sync}' != 'reactive'")
 @RequiredArgsConstructor
 public class LockAopAspect {
 
     private final LockService lockService;
+    private final AccountLockProperties accountLockProperties;
+    private final LockMetrics lockMetrics;
 
     /**
      * Around는 진행하고 있던 ProceedingJoinPoint를 그대로 가져와서 point before / after 을 모두 둘러싸면서 동작한다
      * aspectj 문법 중 args(request)는 특정 어노테이션을 붙인 메서드에서 request라는 파라미터를 가져오는 것
+     * 메서드에 붙은 어노테이션 자체도 함께 가져와서(@annotation(accountLock)) 대기/lease 시간을 읽는다
      */
-    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)") // 어떤 경우에 Aspect를 적용할건지
+    @Around("@annotation(accountLock) && args(request)") // 어떤 경우에 Aspect를 적용할건지
     public Object aroundMethod(
             ProceedingJoinPoint pjp,
+            AccountLock accountLock,
             AccountLockIdInterface request // 공통화된 인터페이스로 가져올 수 있음
             //UseBalance.Request request //CancleBalance 에서 동작이 안된다
     ) throws Throwable {
         // lock 취득 시도
-        lockService.lock(request.getAccountNumber()); // 1. 락을 취득해서
+        String endpoint = getEndpoint(accountLock);
+        long acquiredAt = lock(endpoint, accountLockProperties.getPolicy(accountLock),
+                request.getAccountNumber()); // 1. 락을 취득해서
         try {
             return pjp.proceed(); // 이 어노테이션이 달린 메서드가 실행되는 부분, 2. 로직을 돌리고
         } finally {
             // lock 해제, 메서드가 정상적으로 진행되던 exception 발생하던 락을 해제
             lockService.unlock(request.getAccountNumber()); // 3. 락을 해제한다
+            lockMetrics.recordHold(endpoint, System.nanoTime() - acquiredAt);
+        }
+    }
+
+    /**
+     * 여러 계좌에 걸친 요청은 계좌마다 한 번씩만 락을 잡는다
+     * 요청끼리 서로의 락을 기다리며 교착되지 않도록 항상 LockService 의 정렬 기준 순서로 잡고, 역순으로 푼다
+     * 같은 락을 쓰는 계좌(local 모드의 같은 stripe)는 한 번만 잡는다
+     * 모든 락을 잡는 데 쓰는 시간은 합쳐서 waitTime 까지, 하나라도 못 잡으면 잡은 락을 풀고 바로 실패한다
+     * 락 하나를 푸는 데 실패해도(lease 가 끝난 Redis 락 등) 나머지 락은 계속 푼다
+     * hold 시간은 첫 번째 락을 잡은 때부터 잰다
+     */
+    @Around("@annotation(accountLock) && args(request)")
+    public Object aroundBatchMethod(
+            ProceedingJoinPoint pjp,
+            AccountLock accountLock,
+            AccountLockIdsInterface request
+    ) throws Throwable {
+        String endpoint = getEndpoint(accountLock);
+        LockPolicy lockPolicy = accountLockProperties.getPolicy(accountLock);
+        List<String> lockedAccountNumbers = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockPolicy.getWaitTime());
+        long firstAcquiredAt = 0L;
+        try {
+            Map<String, String> lockOrder = new TreeMap<>();
+            for (String accountNumber : request.getAccountNumbers()) {
+                lockOrder.putIfAbsent(lockService.getLockOrderKey(accountNumber), accountNumber);
+            }
+            for (String accountNumber : lockOrder.values()) {
+                long acquiredAt = lock(endpoint, lockPolicy.remainingUntil(deadline), accountNumber);
+                if (lockedAccountNumbers.isEmpty()) {
+                    firstAcquiredAt = acquiredAt;
+                }
+                lockedAccountNumbers.add(accountNumber);
+            }
+            return pjp.proceed();
+        } finally {
+            for (int i = lockedAccountNumbers.size() - 1; i >= 0; i--) {
+                unlockQuietly(lockedAccountNumbers.get(i));
+            }
+            if (!lockedAccountNumbers.isEmpty()) {
+                lockMetrics.recordHold(endpoint, System.nanoTime() - firstAcquiredAt);
+            }
         }
     }
 
+    // RLock.unlock 은 lease 가 끝났거나 다른 스레드의 락이면 IllegalMonitorStateException 을 던진다
+    private void unlockQuietly(String accountNumber) {
+        try {
+            lockService.unlock(accountNumber);
+        } catch (RuntimeException e) {
+            log.error("Failed to unlock accountNumber : {}", accountNumber, e);
+        }
+    }
+
+    // 락을 잡은 시각을 돌려준다
+    private long lock(String endpoint, LockPolicy lockPolicy, String accountNumber) {
+        long startedAt = System.nanoTime();
+        try {
+            lockService.lock(accountNumber, lockPolicy.getWaitTime(), lockPolicy.getLeaseTime());
+        } catch (AccountException e) {
+            lockMetrics.recordFailed(endpoint, accountNumber, System.nanoTime() - startedAt);
+            throw e;
+        }
+        long acquiredAt = System.nanoTime();
+        lockMetrics.recordAcquired(endpoint, accountNumber, acquiredAt - startedAt);
+        return acquiredAt;
+    }
+
+    private String getEndpoint(AccountLock accountLock) {
+        return accountLock.name().isEmpty() ? "default" : accountLock.name();
+    }
 }
@@ -0,0 +1,62 @@
+package com.example.account.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 계좌 락 대기/점유 시간과 획득 실패를 엔드포인트별로 기록한다
+ * account.lock.wait{endpoint, result} / account.lock.hold{endpoint} / account.lock.failed{endpoint}
+ */
+@Component
+public class LockMetrics {
+    private final MeterRegistry meterRegistry;
+    private final HotAccountSketch hotAccounts;
+
+    public LockMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${account.lock.hot-accounts:50}") int hotAccountCapacity
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.hotAccounts = new HotAccountSketch(hotAccountCapacity);
+    }
+
+    public void recordAcquired(String endpoint, String accountNumber, long waitNanos) {
+        hotAccounts.add(accountNumber);
+        waitTimer(endpoint, "acquired").record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFailed(String endpoint, String accountNumber, long waitNanos) {
+        hotAccounts.add(accountNumber);
+        waitTimer(endpoint, "failed").record(waitNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("account.lock.failed")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordHold(String endpoint, long holdNanos) {
+        Timer.builder("account.lock.hold")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(holdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public List<HotAccountSketch.Entry> getHotAccounts(int limit) {
+        return hotAccounts.top(limit);
+    }
+
+    private Timer waitTimer(String endpoint, String result) {
+        return Timer.builder("account.lock.wait")
+                .tag("endpoint", endpoint)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -1,45 +1,36 @@
 package com.example.account.service;
 
-import com.example.account.exception.AccountException;
-import com.example.account.type.ErrorCode;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
-import org.springframework.stereotype.Service;
+/**
+ * 계좌 단위 락, account.lock.mode 로 구현체를 고른다
+ * redis(기본값) : 여러 인스턴스가 공유하는 Redisson 분산 락
+ * local : 단일 인스턴스 배포용 JVM 내부 락, Redis 왕복이 없다
+ */
+public interface LockService {
+    long DEFAULT_WAIT_TIME = 1000L;
+    long DEFAULT_LEASE_TIME = 15000L;
 
-import java.util.concurrent.TimeUnit;
+    /**
+     * waitTime 동안 락을 기다리고, 잡은 락은 leaseTime 이 지나면 풀린다 (ms)
+     * leaseTime 이 AccountLock.WATCHDOG 이면 락을 쥐고 있는 동안 lease 를 계속 연장한다
+     */
+    void lock(String accountNumber, long waitTime, long leaseTime);
 
-@Slf4j
-@Service
-@RequiredArgsConstructor
-public class LockService {
-    private final RedissonClient redissonClient;
-
-    public void lock(String accountNumber) {
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber));
-        log.debug("Trying lock for accountNumber : {}", accountNumber);
-
-        try {
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
-            if (!isLock) {
-                log.error("======Lock acquisition failed=====");
-                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
-            }
-        }catch (AccountException e){ //AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK) 은 다시 상위로 올려 GlobalExceptionHandler가 받는다
-            throw e;
-        }catch (Exception e) { // 그 외에 다른 에러는 에러만 찍는다
-            log.error("Redis lock failed", e);
-        }
+    default void lock(String accountNumber) {
+        lock(accountNumber, DEFAULT_WAIT_TIME, DEFAULT_LEASE_TIME);
     }
 
-    public void unlock(String accountNumber) {
-        log.debug("Unlock for accountNumber : {}", accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+    void unlock(String accountNumber);
+
+    /**
+     * 여러 계좌의 락을 잡을 때 정렬하는 기준, 값이 같은 계좌는 같은 락을 쓴다
+     * 모든 요청이 이 순서로 잡아야 서로의 락을 기다리며 교착되지 않는다
+     */
+    default String getLockOrderKey(String accountNumber) {
+        return getLockKey(accountNumber);
     }
 
-    // 계좌 번호를 Lock의 키로 삼는다 private 메서드로 빼서 Lock key를 만들어준다는 것을 명시적으로 나타냄
-    private String getLockKey(String accountNumber) {
+    // 계좌 번호를 Lock의 키로 삼는다 메서드로 빼서 Lock key를 만들어준다는 것을 명시적으로 나타냄
+    static String getLockKey(String accountNumber) {
         return "ACLK:" + accountNumber;
     }
 }
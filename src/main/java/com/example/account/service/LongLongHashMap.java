@@ -0,0 +1,110 @@
+package com.example.account.service;
+
+import java.util.Arrays;
+
+/**
+ * long 키 -> long 값 해시맵 (open addressing, linear probing)
+ * HashMap<Long, Long> 처럼 항목마다 Long 객체와 Entry 를 만들지 않기 때문에 계좌 수백만 개의 잔액을 배열 두 개로 들고 있을 수 있다
+ * 계좌 id 는 항상 1 이상이므로 0 을 빈 칸 표시로 쓴다, 삭제는 지원하지 않는다
+ * 동기화하지 않으므로 여러 스레드에서 쓸 때는 바깥에서 잠가야 한다
+ */
+public final class LongLongHashMap {
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public long get(long key, long defaultValue) {
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return keys[indexOf(key)] == key;
+    }
+
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("key must not be 0");
+        }
+        int index = indexOf(key);
+        if (keys[index] != key) {
+            keys[index] = key;
+            if (++size > resizeAt) {
+                values[index] = value;
+                resize();
+                return;
+            }
+        }
+        values[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(LongLongConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public LongLongHashMap copy() {
+        LongLongHashMap copy = new LongLongHashMap(0);
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.values = Arrays.copyOf(values, values.length);
+        copy.size = size;
+        copy.resizeAt = resizeAt;
+        return copy;
+    }
+
+    // 키가 있으면 그 위치, 없으면 들어갈 빈 칸의 위치
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // 연속된 id 가 한 곳에 몰리지 않도록 비트를 섞는다
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.account.service;
+
+import com.example.account.aop.AspectOrder;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * account.concurrency.mode=optimistic 일 때 LockAopAspect 대신 @AccountLock 메서드를 감싼다
+ * Redis 락 없이 바로 처리하고, Account 의 @Version 이 충돌해서 커밋이 실패하면 새 트랜잭션으로 다시 시도한다
+ * 재시도를 다 써도 충돌하면 락 획득 실패와 같은 ACCOUNT_TRANSACTION_LOCK 으로 응답한다
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(AspectOrder.OPTIMISTIC_RETRY)
+@ConditionalOnProperty(name = "account.concurrency.mode", havingValue = "optimistic")
+public class OptimisticRetryAspect {
+    private final int maxRetries;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public OptimisticRetryAspect(
+            MeterRegistry meterRegistry,
+            @Value("${account.concurrency.max-retries:5}") int maxRetries
+    ) {
+        this.maxRetries = maxRetries;
+        this.retries = Counter.builder("account.concurrency.optimistic.retry")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("account.concurrency.optimistic.exhausted")
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(com.example.account.aop.AccountLock)")
+    public Object aroundMethod(ProceedingJoinPoint pjp) throws Throwable {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return pjp.proceed(); // 메서드 안의 서비스 호출이 매번 새 트랜잭션으로 실행된다
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxRetries) {
+                    exhausted.increment();
+                    log.error("======Optimistic lock retries exhausted=====");
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    // 같은 계좌에 몰린 요청들이 다시 동시에 부딪히지 않도록 조금씩 다르게 쉰다
+    private void backoff(int attempt) throws InterruptedException {
+        long maxMillis = 1L << Math.min(attempt, 6);
+        Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis + 1));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RLock;
+import org.redisson.api.RStreamAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * outbox 의 이벤트를 모아서 Redis Stream 으로 발행한다
+ * 1. 여러 인스턴스 중 Redis 락을 잡은 하나만 발행하고, 발행하면서 이어지는 sequence 를 매긴다
+ * 2. 발행하지 않은 이벤트를 거래 시각 순서(계좌별 커밋 순서)로 batch-size 건씩 읽어 RBatch 한 번으로 스트림에 넣는다
+ * 3. 스트림에 넣은 뒤에 sequence 를 커밋한다, 커밋이 실패하면 다음 번에 다시 발행되므로 consumer 는 transactionId 로 중복을 거른다
+ * 발행한 이벤트는 retention 동안 DB 에 남겨서 cursor API 로 다시 읽을 수 있게 한다
+ * 지표 : account.outbox.published
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements DisposableBean {
+    public static final String STREAM_KEY = "BALANCE_CHANGE_EVENTS";
+    private static final String RELAY_LOCK_KEY = "OUTBOX_RELAY";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RedissonClient redissonClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter published;
+    private final int batchSize;
+    private final int streamMaxLength;
+    private final long retentionMillis;
+    private ScheduledExecutorService scheduler;
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            RedissonClient redissonClient,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${account.outbox.enabled:true}") boolean enabled,
+            @Value("${account.outbox.relay-millis:200}") long relayMillis,
+            @Value("${account.outbox.batch-size:500}") int batchSize,
+            @Value("${account.outbox.stream-max-length:1000000}") int streamMaxLength,
+            @Value("${account.outbox.retention-millis:604800000}") long retentionMillis
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.redissonClient = redissonClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.published = Counter.builder("account.outbox.published").register(meterRegistry);
+        this.batchSize = batchSize;
+        this.streamMaxLength = streamMaxLength;
+        this.retentionMillis = retentionMillis;
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("outbox-relay-"));
+            scheduler.scheduleWithFixedDelay(this::relay, relayMillis, relayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void relay() {
+        RLock lock = redissonClient.getLock(RELAY_LOCK_KEY);
+        try {
+            if (!lock.tryLock()) { // 다른 인스턴스가 발행 중
+                return;
+            }
+        } catch (Exception e) {
+            log.error("Failed to get outbox relay lock", e);
+            return;
+        }
+
+        try {
+            int count;
+            do {
+                count = transactionTemplate.execute(status -> publishBatch());
+            } while (count == batchSize); // 밀려 있으면 쉬지 않고 이어서 발행한다
+            transactionTemplate.executeWithoutResult(status -> purge());
+        } catch (Exception e) {
+            log.error("Failed to relay outbox events", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findBySequenceIsNullOrderByTransactedAtAscIdAsc(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Long maxSequence = outboxEventRepository.findMaxSequence();
+        long sequence = maxSequence == null ? 0L : maxSequence;
+        LocalDateTime publishedAt = LocalDateTime.now();
+        RBatch batch = redissonClient.createBatch();
+        RStreamAsync<String, String> stream = batch.getStream(STREAM_KEY, StringCodec.INSTANCE);
+        for (OutboxEvent event : events) {
+            event.setSequence(++sequence);
+            event.setPublishedAt(publishedAt);
+            stream.addAsync(StreamAddArgs.entries(toMessage(event))
+                    .trimNonStrict().maxLen(streamMaxLength).noLimit());
+        }
+        batch.execute(); // 실패하면 예외로 트랜잭션이 롤백되어 sequence 도 매겨지지 않는다
+        published.increment(events.size());
+        return events.size();
+    }
+
+    private void purge() {
+        Long maxSequence = outboxEventRepository.findMaxSequence();
+        if (maxSequence != null) {
+            outboxEventRepository.deletePublishedBefore(
+                    LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(retentionMillis)), maxSequence);
+        }
+    }
+
+    // 필드 이름을 짧게, 값은 문자열로만 담는다
+    private static Map<String, String> toMessage(OutboxEvent event) {
+        Map<String, String> message = new LinkedHashMap<>();
+        message.put("seq", String.valueOf(event.getSequence()));
+        message.put("acc", event.getAccountNumber());
+        message.put("type", event.getTransactionType().name());
+        message.put("amt", String.valueOf(event.getAmount()));
+        message.put("bal", String.valueOf(event.getBalanceSnapshot()));
+        message.put("tx", event.getTransactionId());
+        message.put("at", event.getTransactedAt().toString());
+        return message;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
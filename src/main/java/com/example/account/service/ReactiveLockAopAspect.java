@@ -0,0 +1,125 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.AccountLockIdsInterface;
+import com.example.account.aop.AspectOrder;
+import com.example.account.aop.LockPolicy;
+import com.example.account.config.AccountLockProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * account.execution.mode=reactive 일 때 LockAopAspect 와 AsyncExecutionAspect 를 대신한다
+ * 1. AsyncLockService 로 락을 기다리고 (스레드를 쓰지 않는다)
+ * 2. 락을 잡은 뒤에야 TransactionExecutor 에서 로직을 돌리고
+ * 3. 결과가 나오면 락을 푼다
+ * 그래서 같은 계좌에 요청이 수천 개 몰려도 실행기 스레드는 실제로 처리 중인 요청만큼만 쓰인다
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(AspectOrder.ASYNC_EXECUTION)
+@ConditionalOnExpression("'${account.concurrency.mode:lock}' == 'lock' and '${account.execution.mode:sync}' == 'reactive'")
+@RequiredArgsConstructor
+public class ReactiveLockAopAspect {
+    private final AsyncLockService asyncLockService;
+    private final AccountLockProperties accountLockProperties;
+    private final LockMetrics lockMetrics;
+    private final TransactionExecutor transactionExecutor;
+
+    @Around("@annotation(accountLock) && args(request)")
+    public Object aroundMethod(
+            ProceedingJoinPoint pjp,
+            AccountLock accountLock,
+            AccountLockIdInterface request
+    ) {
+        return lockAndProceed(pjp, accountLock,
+                Collections.singletonList(request.getAccountNumber()));
+    }
+
+    @Around("@annotation(accountLock) && args(request)")
+    public Object aroundBatchMethod(
+            ProceedingJoinPoint pjp,
+            AccountLock accountLock,
+            AccountLockIdsInterface request
+    ) {
+        return lockAndProceed(pjp, accountLock, request.getAccountNumbers());
+    }
+
+    private CompletableFuture<Object> lockAndProceed(
+            ProceedingJoinPoint pjp,
+            AccountLock accountLock,
+            Collection<String> accountNumbers
+    ) {
+        String endpoint = accountLock.name().isEmpty() ? "default" : accountLock.name();
+        LockPolicy lockPolicy = accountLockProperties.getPolicy(accountLock);
+        long ownerId = asyncLockService.newOwnerId();
+        // 락을 잡은 뒤의 콜백은 Redisson 스레드에서 실행되기 때문에 요청 정보는 여기서 꺼내둔다
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+        // LockAopAspect 와 같이 계좌번호 순서로 하나씩 잡는다, 앞의 락을 잡아야 다음 락을 요청한다
+        // 전체 대기 시간도 LockAopAspect 와 같이 waitTime 까지
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockPolicy.getWaitTime());
+        List<String> lockedAccountNumbers = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> acquired = CompletableFuture.completedFuture(null);
+        for (String accountNumber : new TreeSet<>(accountNumbers)) {
+            acquired = acquired
+                    .thenCompose(v -> lock(endpoint, lockPolicy.remainingUntil(deadline), ownerId, accountNumber))
+                    .thenRun(() -> lockedAccountNumbers.add(accountNumber));
+        }
+
+        long[] acquiredAt = new long[1];
+        return acquired
+                .thenCompose(v -> {
+                    acquiredAt[0] = System.nanoTime();
+                    return transactionExecutor.submit(pjp, requestAttributes);
+                })
+                .whenComplete((value, e) -> {
+                    // 성공하든 실패하든 잡은 락은 역순으로 푼다
+                    for (int i = lockedAccountNumbers.size() - 1; i >= 0; i--) {
+                        unlock(lockedAccountNumbers.get(i), ownerId);
+                    }
+                    if (acquiredAt[0] != 0) {
+                        lockMetrics.recordHold(endpoint, System.nanoTime() - acquiredAt[0]);
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> lock(String endpoint, LockPolicy lockPolicy, long ownerId, String accountNumber) {
+        long startedAt = System.nanoTime();
+        return asyncLockService.lock(accountNumber, ownerId, lockPolicy.getWaitTime(), lockPolicy.getLeaseTime())
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        lockMetrics.recordFailed(endpoint, accountNumber, System.nanoTime() - startedAt);
+                    } else {
+                        lockMetrics.recordAcquired(endpoint, accountNumber, System.nanoTime() - startedAt);
+                    }
+                });
+    }
+
+    private void unlock(String accountNumber, long ownerId) {
+        asyncLockService.unlock(accountNumber, ownerId)
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        log.error("Async unlock failed for accountNumber : {}", accountNumber, e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.account.service;
+
+import com.example.account.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis INCRBY 로 blockSize 만큼의 번호 구간을 예약하고, 구간 안에서는 AtomicLong 으로 lock 없이 번호를 나눠준다
+ * 여러 인스턴스가 떠 있어도 Redis 카운터가 구간을 나눠주기 때문에 번호가 겹치지 않는다
+ */
+@Slf4j
+@Component
+public class RedisAccountNumberAllocator implements AccountNumberAllocator {
+    private static final String COUNTER_KEY = "ACNO:counter";
+    private static final long FIRST_ACCOUNT_NUMBER = 1000000000L;
+    private static final long LAST_ACCOUNT_NUMBER = 9999999999L;
+
+    private final RedissonClient redissonClient;
+    private final AccountRepository accountRepository;
+    private final int blockSize;
+
+    private volatile AccountNumberBlock block = new AccountNumberBlock(0, 0);
+    private boolean seeded;
+
+    public RedisAccountNumberAllocator(
+            RedissonClient redissonClient,
+            AccountRepository accountRepository,
+            @Value("${account.number.block-size:100}") int blockSize
+    ) {
+        this.redissonClient = redissonClient;
+        this.accountRepository = accountRepository;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public String allocate() {
+        while (true) {
+            AccountNumberBlock current = block;
+            long offset = current.next();
+            if (offset >= 0) {
+                return toAccountNumber(offset);
+            }
+            refill(current);
+        }
+    }
+
+    /**
+     * 인스턴스가 나눠주는 구간과 별개로 Redis 카운터에서 count 개를 바로 예약하므로 번호가 끊기지 않고 이어진다
+     */
+    @Override
+    public List<String> allocate(int count) {
+        long end = reserve(count);
+        List<String> accountNumbers = new ArrayList<>(count);
+        for (long offset = end - count; offset < end; offset++) {
+            accountNumbers.add(toAccountNumber(offset));
+        }
+        return accountNumbers;
+    }
+
+    // 구간을 다 쓴 경우에만 들어오므로 blockSize 번에 한 번만 Redis 를 호출한다
+    private synchronized void refill(AccountNumberBlock exhausted) {
+        if (block != exhausted) { // 기다리는 동안 다른 스레드가 이미 새 구간을 받아왔다
+            return;
+        }
+        long end = reserve(blockSize);
+        block = new AccountNumberBlock(end - blockSize, end);
+    }
+
+    // [end - count, end) 구간을 예약하고 end 를 돌려준다
+    private synchronized long reserve(int count) {
+        RAtomicLong counter = redissonClient.getAtomicLong(COUNTER_KEY);
+        if (!seeded) {
+            seed(counter);
+            seeded = true;
+        }
+        long end = counter.addAndGet(count);
+        log.debug("Reserved account number block [{}, {})", end - count, end);
+        return end;
+    }
+
+    // 기존에 발급된 계좌번호보다 카운터가 뒤쳐져 있으면 앞으로 당겨준다 (기동 후 한 번만 DB 조회)
+    // id 는 인스턴스마다 미리 받아둔 구간에서 나오므로 id 가 가장 큰 계좌가 가장 큰 번호라는 보장이 없다
+    private void seed(RAtomicLong counter) {
+        long used = accountRepository.findMaxAccountNumber()
+                .map(accountNumber -> Long.parseLong(accountNumber) - FIRST_ACCOUNT_NUMBER + 1)
+                .orElse(0L);
+
+        long current = counter.get();
+        while (current < used && !counter.compareAndSet(current, used)) {
+            current = counter.get();
+        }
+    }
+
+    private String toAccountNumber(long offset) {
+        long accountNumber = FIRST_ACCOUNT_NUMBER + offset;
+        if (accountNumber > LAST_ACCOUNT_NUMBER) {
+            throw new IllegalStateException("Account numbers are exhausted");
+        }
+        return String.valueOf(accountNumber);
+    }
+
+    private static class AccountNumberBlock {
+        private final AtomicLong cursor;
+        private final long end;
+
+        AccountNumberBlock(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+
+        // 구간을 다 쓰면 -1
+        long next() {
+            long offset = cursor.getAndIncrement();
+            return offset < end ? offset : -1;
+        }
+    }
+}
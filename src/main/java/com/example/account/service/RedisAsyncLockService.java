@@ -0,0 +1,61 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redisson 의 RLockAsync 를 사용하는 분산 락
+ * 락이 풀리기를 기다리는 동안은 Redis pub/sub 알림만 기다리기 때문에 스레드를 잡고 있지 않는다
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.lock.mode", havingValue = "redis", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RedisAsyncLockService implements AsyncLockService {
+    // Redisson 은 스레드 id 로 락 소유자를 구분하기 때문에 실제 스레드 id 와 겹치지 않도록 음수를 쓴다
+    private static final AtomicLong OWNER_IDS = new AtomicLong();
+
+    private final RedissonClient redissonClient;
+
+    @Override
+    public long newOwnerId() {
+        return -OWNER_IDS.incrementAndGet();
+    }
+
+    @Override
+    public CompletableFuture<Void> lock(String accountNumber, long ownerId, long waitTime, long leaseTime) {
+        log.debug("Trying async lock for accountNumber : {}", accountNumber);
+        // leaseTime 이 -1(AccountLock.WATCHDOG) 이면 Redisson watchdog 이 연장해준다
+        return redissonClient.getLock(LockService.getLockKey(accountNumber))
+                .tryLockAsync(waitTime, leaseTime, TimeUnit.MILLISECONDS, ownerId)
+                .toCompletableFuture()
+                .handle((isLock, e) -> {
+                    if (e != null) { // RedisLockService 와 같이 Redis 오류는 에러만 찍는다
+                        log.error("Redis lock failed", e);
+                        return null;
+                    }
+                    if (!isLock) {
+                        log.error("======Lock acquisition failed=====");
+                        throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> unlock(String accountNumber, long ownerId) {
+        log.debug("Async unlock for accountNumber : {}", accountNumber);
+        return redissonClient.getLock(LockService.getLockKey(accountNumber))
+                .unlockAsync(ownerId)
+                .toCompletableFuture();
+    }
+}
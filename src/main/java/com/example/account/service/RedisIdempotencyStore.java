@@ -0,0 +1,64 @@
+package com.example.account.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인스턴스끼리 공유하는 Redis hash(RMapCache) 에 결과를 둔다, 재요청이 다른 인스턴스로 가도 처음 결과를 받는다
+ * 처리 중 표시는 in-progress-ttl 만 유지해서 처리하던 인스턴스가 죽어도 키가 계속 막혀 있지 않게 한다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.idempotency.store", havingValue = "redis", matchIfMissing = true)
+public class RedisIdempotencyStore implements IdempotencyStore {
+    private static final String REDIS_KEY = "IDEMPOTENCY";
+
+    private final RMapCache<String, IdempotencyRecord> records;
+    private final long ttl;
+    private final long inProgressTtl;
+
+    public RedisIdempotencyStore(
+            RedissonClient redissonClient,
+            @Value("${account.idempotency.ttl:86400000}") long ttl,
+            @Value("${account.idempotency.in-progress-ttl:60000}") long inProgressTtl
+    ) {
+        this.records = redissonClient.getMapCache(REDIS_KEY);
+        this.ttl = ttl;
+        this.inProgressTtl = inProgressTtl;
+    }
+
+    @Override
+    public IdempotencyRecord reserve(String key, String fingerprint) {
+        try {
+            return records.putIfAbsent(key, IdempotencyRecord.inProgress(fingerprint),
+                    inProgressTtl, TimeUnit.MILLISECONDS);
+        } catch (Exception e) { // Redis 장애로 거래가 막히지 않도록 키 없이 처리한다 (락과 같은 정책)
+            log.error("Failed to reserve idempotency key", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord idempotencyRecord) {
+        try {
+            records.fastPut(key, idempotencyRecord, ttl, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("Failed to store idempotency record", e);
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        try {
+            records.fastRemove(key);
+        } catch (Exception e) {
+            log.error("Failed to release idempotency key", e);
+        }
+    }
+}
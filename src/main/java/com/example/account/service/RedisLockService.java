@@ -0,0 +1,50 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redisson 분산 락, 여러 인스턴스로 배포할 때 사용하는 기본 구현
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.lock.mode", havingValue = "redis", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RedisLockService implements LockService {
+    private final RedissonClient redissonClient;
+
+    @Override
+    public void lock(String accountNumber, long waitTime, long leaseTime) {
+        RLock lock = redissonClient.getLock(LockService.getLockKey(accountNumber));
+        log.debug("Trying lock for accountNumber : {}", accountNumber);
+
+        try {
+            boolean isLock = leaseTime == AccountLock.WATCHDOG
+                    ? lock.tryLock(waitTime, TimeUnit.MILLISECONDS) // lease 를 지정하지 않으면 Redisson watchdog 이 연장해준다
+                    : lock.tryLock(waitTime, leaseTime, TimeUnit.MILLISECONDS);
+            if (!isLock) {
+                log.error("======Lock acquisition failed=====");
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+        }catch (AccountException e){ //AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK) 은 다시 상위로 올려 GlobalExceptionHandler가 받는다
+            throw e;
+        }catch (Exception e) { // 그 외에 다른 에러는 에러만 찍는다
+            log.error("Redis lock failed", e);
+        }
+    }
+
+    @Override
+    public void unlock(String accountNumber) {
+        log.debug("Unlock for accountNumber : {}", accountNumber);
+        redissonClient.getLock(LockService.getLockKey(accountNumber)).unlock();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 잔액 변경 요청 전용 실행기
+ * 락 대기가 몰려도 톰캣 스레드는 계좌 조회 같은 다른 요청을 계속 처리할 수 있도록 분리한다
+ * 동시에 처리 중인 요청 수를 max-in-flight 로 제한해서 넘치는 요청은 기다리게 하지 않고 바로 거절한다
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${account.execution.mode:sync}' != 'sync'")
+public class TransactionExecutor implements DisposableBean {
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final Counter rejected;
+
+    public TransactionExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${account.execution.virtual-threads:true}") boolean virtualThreads,
+            @Value("${account.execution.pool-size:64}") int poolSize,
+            @Value("${account.execution.max-in-flight:256}") int maxInFlight
+    ) {
+        this.executorService = newExecutorService(virtualThreads, poolSize);
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.rejected = Counter.builder("account.execution.rejected")
+                .register(meterRegistry);
+        Gauge.builder("account.execution.in-flight", this, TransactionExecutor::getInFlight)
+                .register(meterRegistry);
+    }
+
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new AccountException(ErrorCode.TRANSACTION_OVERLOADED);
+        }
+        try {
+            executorService.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) { // 종료 중일 때
+            permits.release();
+            rejected.increment();
+            throw new AccountException(ErrorCode.TRANSACTION_OVERLOADED);
+        }
+    }
+
+    /**
+     * CompletableFuture 를 반환하는 @AccountLock 메서드를 실행기 스레드에서 이어서 실행한다
+     * 안쪽 Aspect 가 요청 정보를 볼 수 있도록 호출한 쪽에서 꺼낸 requestAttributes 를 실행기 스레드로 넘겨준다
+     */
+    public CompletableFuture<Object> submit(ProceedingJoinPoint pjp, RequestAttributes requestAttributes) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        execute(() -> {
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            try {
+                ((CompletionStage<?>) pjp.proceed()).whenComplete((value, e) -> {
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        });
+        return result;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // JDK 11 에서 빌드하기 때문에 가상 스레드 실행기는 리플렉션으로 찾고, 없으면 고정 크기 스레드 풀을 쓴다
+    private static ExecutorService newExecutorService(boolean virtualThreads, int poolSize) {
+        if (virtualThreads) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+                log.info("Transaction executor uses virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                log.info("Virtual threads are not available, using {} platform threads", poolSize);
+            }
+        }
+        // 동시 실행 수는 permits 가 제한하기 때문에 큐는 따로 제한하지 않는다
+        return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("transaction-"));
+    }
+}
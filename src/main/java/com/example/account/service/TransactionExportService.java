@@ -0,0 +1,138 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.example.account.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.account.type.ErrorCode.INVALID_REQUEST;
+
+/**
+ * 정산용 거래 내역 내보내기
+ * 거래를 PAGE_SIZE 건씩 keyset 으로 읽어서 바로 응답에 쓰기 때문에 건수와 상관없이 메모리 사용량이 일정하다
+ * 페이지마다 짧은 읽기 전용 트랜잭션을 열고 닫으므로, 느린 클라이언트에 쓰는 동안에는 커넥션과 영속성 컨텍스트를 잡고 있지 않는다
+ * 전체 테이블을 읽지 않도록 계좌번호나 기간(from, to 모두) 중 하나는 있어야 한다
+ */
+@Slf4j
+@Service
+public class TransactionExportService {
+    // 계좌번호만 지정했을 때 기간 조건을 인덱스 범위로 그대로 쓰기 위한 양 끝 값
+    private static final LocalDateTime MIN_TRANSACTED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TRANSACTED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final int PAGE_SIZE = 1000;
+    private static final String CSV_HEADER =
+            "accountNumber,transactionType,transactionResult,amount,balanceSnapshot,transactionId,transactedAt\n";
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionExportService(
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // 응답을 쓰기 시작하면 에러 응답을 보낼 수 없으므로 요청 스레드에서 먼저 확인한다
+    public void validateExport(String accountNumber, LocalDateTime from, LocalDateTime to) {
+        if (accountNumber == null && (from == null || to == null)) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        if (accountNumber != null && !accountRepository.findByAccountNumber(accountNumber).isPresent()) {
+            throw new AccountException(ACCOUNT_NOT_FOUND);
+        }
+    }
+
+    public void export(
+            String accountNumber,
+            LocalDateTime from,
+            LocalDateTime to,
+            ExportFormat format,
+            OutputStream outputStream
+    ) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        long rows = 0L;
+        LocalDateTime transactedAt = from != null ? from : MIN_TRANSACTED_AT;
+        long id = 0L; // 첫 페이지는 from 이상 전부
+        LocalDateTime until = to != null ? to : MAX_TRANSACTED_AT;
+        while (true) {
+            List<Transaction> page = readPage(accountNumber, transactedAt, id, until);
+            for (Transaction transaction : page) {
+                writeRow(writer, format, TransactionDto.fromEntity(transaction));
+            }
+            rows += page.size();
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            Transaction last = page.get(page.size() - 1);
+            transactedAt = last.getTransactedAt();
+            id = last.getId();
+        }
+        writer.flush();
+        log.info("Exported {} transactions as {}", rows, format);
+    }
+
+    // 계좌는 join fetch 로 같이 읽었으므로 트랜잭션이 끝난 뒤에도 DTO 로 바꿀 수 있다
+    private List<Transaction> readPage(
+            String accountNumber, LocalDateTime transactedAt, long id, LocalDateTime to
+    ) {
+        PageRequest pageRequest = PageRequest.of(0, PAGE_SIZE);
+        return transactionTemplate.execute(status -> accountNumber == null
+                ? transactionRepository.findExportPage(transactedAt, id, to, pageRequest)
+                : transactionRepository.findExportPageByAccount(accountNumber, transactedAt, id, to, pageRequest));
+    }
+
+    private void writeRow(Writer writer, ExportFormat format, TransactionDto transactionDto) {
+        try {
+            if (format == ExportFormat.CSV) {
+                // 계좌번호, enum, 숫자, uuid, 시각이라 쉼표나 따옴표가 들어갈 값이 없다
+                writer.write(String.join(",",
+                        transactionDto.getAccountNumber(),
+                        String.valueOf(transactionDto.getTransactionType()),
+                        String.valueOf(transactionDto.getTransactionResultType()),
+                        String.valueOf(transactionDto.getAmount()),
+                        String.valueOf(transactionDto.getBalanceSnapshot()),
+                        transactionDto.getTransactionId(),
+                        String.valueOf(transactionDto.getTransactedAt())));
+            } else {
+                writer.write(objectMapper.writeValueAsString(transactionDto));
+            }
+            writer.write('\n');
+        } catch (IOException e) { // 클라이언트가 연결을 끊은 경우 등, 남은 페이지는 읽지 않는다
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.BalanceChangeEvent;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.example.account.type.ErrorCode.INVALID_REQUEST;
+
+/**
+ * 성공한 거래를 잔액 변경 이벤트로 outbox 에 남기고, consumer 가 cursor 로 이어 읽을 수 있게 한다
+ * append 는 거래를 저장하는 트랜잭션 안에서 호출되므로 거래와 이벤트는 함께 커밋되거나 함께 롤백된다
+ */
+@Component
+public class TransactionOutbox {
+    private static final int MAX_EVENTS_SIZE = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final boolean enabled;
+
+    public TransactionOutbox(
+            OutboxEventRepository outboxEventRepository,
+            @Value("${account.outbox.enabled:true}") boolean enabled
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.enabled = enabled;
+    }
+
+    public void append(Transaction transaction) {
+        if (enabled) {
+            outboxEventRepository.save(OutboxEvent.from(transaction));
+        }
+    }
+
+    public void appendAll(List<Transaction> transactions) {
+        if (enabled && !transactions.isEmpty()) {
+            outboxEventRepository.saveAll(transactions.stream()
+                    .map(OutboxEvent::from)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    // after 보다 뒤에 발행된 이벤트를 size 건까지
+    public List<BalanceChangeEvent> getEventsAfter(long after, int size) {
+        if (after < 0 || size < 1 || size > MAX_EVENTS_SIZE) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        return outboxEventRepository.findBySequenceGreaterThanOrderBySequence(after, PageRequest.of(0, size))
+                .stream()
+                .map(BalanceChangeEvent::fromEntity)
+                .collect(Collectors.toList());
+    }
+}
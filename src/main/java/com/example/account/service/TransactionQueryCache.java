@@ -0,0 +1,112 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 거래 조회 결과 캐시, 저장된 거래는 바뀌지 않기 때문에 무효화 없이 크기와 TTL 로만 내보낸다
+ * 1차 : 인스턴스 안의 Caffeine 캐시, 2차(선택) : 인스턴스끼리 공유하는 Redis 캐시
+ * 지표 : cache.gets{cache=transactionQuery} (Caffeine), account.cache.transaction.redis{result}
+ */
+@Slf4j
+@Component
+public class TransactionQueryCache {
+    private static final String CACHE_NAME = "transactionQuery";
+    private static final String REDIS_CACHE_KEY = "TXQ";
+
+    private final boolean enabled;
+    private final long ttl;
+    private final Cache<String, TransactionDto> localCache;
+    private final RMapCache<String, TransactionDto> redisCache; // redis-enabled 가 아니면 null
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public TransactionQueryCache(
+            RedissonClient redissonClient,
+            MeterRegistry meterRegistry,
+            @Value("${account.cache.transaction.enabled:true}") boolean enabled,
+            @Value("${account.cache.transaction.maximum-size:100000}") long maximumSize,
+            @Value("${account.cache.transaction.ttl:600000}") long ttl,
+            @Value("${account.cache.transaction.redis-enabled:false}") boolean redisEnabled
+    ) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .build();
+        this.redisCache = redisEnabled ? redissonClient.getMapCache(REDIS_CACHE_KEY) : null;
+        this.redisHits = Counter.builder("account.cache.transaction.redis")
+                .tag("result", "hit").register(meterRegistry);
+        this.redisMisses = Counter.builder("account.cache.transaction.redis")
+                .tag("result", "miss").register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, CACHE_NAME);
+    }
+
+    public Optional<TransactionDto> get(String transactionId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        TransactionDto transactionDto = localCache.getIfPresent(transactionId);
+        if (transactionDto != null || redisCache == null) {
+            return Optional.ofNullable(transactionDto);
+        }
+
+        try {
+            transactionDto = redisCache.get(transactionId);
+        } catch (Exception e) { // Redis 캐시 장애로 조회가 실패하지 않도록 DB 로 넘어간다
+            log.error("Failed to read transaction cache", e);
+            return Optional.empty();
+        }
+        if (transactionDto == null) {
+            redisMisses.increment();
+            return Optional.empty();
+        }
+        redisHits.increment();
+        localCache.put(transactionId, transactionDto);
+        return Optional.of(transactionDto);
+    }
+
+    /**
+     * 트랜잭션 안에서 호출되면 커밋된 뒤에 캐시에 넣는다 (롤백된 거래가 조회되지 않도록)
+     */
+    public void put(TransactionDto transactionDto) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doPut(transactionDto);
+                }
+            });
+        } else {
+            doPut(transactionDto);
+        }
+    }
+
+    private void doPut(TransactionDto transactionDto) {
+        localCache.put(transactionDto.getTransactionId(), transactionDto);
+        if (redisCache != null) {
+            // 응답을 Redis 왕복만큼 늦추지 않도록 비동기로 넣는다
+            redisCache.fastPutAsync(transactionDto.getTransactionId(), transactionDto, ttl, TimeUnit.MILLISECONDS);
+        }
+    }
+}
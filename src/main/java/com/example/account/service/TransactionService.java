@@ -3,7 +3,11 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.FailedTransaction;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.exception.TransactionException;
 import com.example.account.repository.AccountRepository;
@@ -12,14 +16,24 @@ import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.example.account.type.ErrorCode.*;
 import static com.example.account.type.TransactionResultType.F;
@@ -29,30 +43,99 @@ import static com.example.account.type.TransactionType.USE;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TransactionService {
+    private static final int MAX_HISTORY_SIZE = 100;
+
     private final TransactionRepository transactionRepository;
     private final AccountUserRepository accountUserRepository;
     private final AccountRepository accountRepository;
+    private final TransactionQueryCache transactionQueryCache;
+    private final BalanceCommandEngine balanceCommandEngine;
+    private final BalanceLedger balanceLedger;
+    private final TransactionOutbox transactionOutbox;
+    private final AccountMetadataCache accountMetadataCache;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionService(
+            TransactionRepository transactionRepository,
+            AccountUserRepository accountUserRepository,
+            AccountRepository accountRepository,
+            TransactionQueryCache transactionQueryCache,
+            BalanceCommandEngine balanceCommandEngine,
+            BalanceLedger balanceLedger,
+            TransactionOutbox transactionOutbox,
+            AccountMetadataCache accountMetadataCache,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.accountUserRepository = accountUserRepository;
+        this.accountRepository = accountRepository;
+        this.transactionQueryCache = transactionQueryCache;
+        this.balanceCommandEngine = balanceCommandEngine;
+        this.balanceLedger = balanceLedger;
+        this.transactionOutbox = transactionOutbox;
+        this.accountMetadataCache = accountMetadataCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     /**
      * 사용자가 없는 경우, 사용자 아이디와 계좌 소유주가 다른 경우
      * 계좌가 이미 해지 상태인 경우, 거래 금액이 잔액보다 큰 경우
      * 거래 금액이 너무 작거나 큰 경우 실패 응답
+     * 명령 엔진을 쓰면 worker 가 트랜잭션을 열기 때문에 요청 스레드는 트랜잭션(커넥션) 없이 커밋을 기다린다
      */
-    @Transactional
-    // 1. 2. 는 동시에 일어나거나 둘 다 일어나지 않거나 서비스 쪽에 있는 코드들은 기본적으로 Transactional을 달아주자
     public TransactionDto useBalance(Long userId, String accountNumber, Long amount) {
-        AccountUser user = accountUserRepository.findById(userId)
-                .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
+        AccountUser cachedOwner = getCachedOwner(userId, accountNumber);
+        if (balanceCommandEngine.isEnabled()) {
+            // single-writer 모드에서는 계좌를 담당하는 worker 스레드가 다른 요청들과 모아서 처리한다
+            return balanceCommandEngine.execute(accountNumber, batch -> {
+                AccountUser user = cachedOwner != null ? cachedOwner : accountUserRepository.findById(userId)
+                        .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
+                Account account = batch.getAccount(accountNumber);
+                if (cachedOwner == null) {
+                    accountMetadataCache.put(account);
+                }
+                return applyUseBalance(user, account, amount);
+            });
+        }
 
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        // 1. 2. 는 동시에 일어나거나 둘 다 일어나지 않거나 서비스 쪽에 있는 코드들은 기본적으로 트랜잭션 안에서 실행하자
+        return transactionTemplate.execute(status -> {
+            AccountUser user = cachedOwner != null ? cachedOwner : accountUserRepository.findById(userId)
+                    .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
+
+            Account account = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+            if (cachedOwner == null) {
+                accountMetadataCache.put(account);
+            }
+
+            return applyUseBalance(user, account, amount);
+        });
+    }
 
+    /**
+     * 캐시된 계좌 정보로 소유주가 확인되면 사용자를 DB 에서 다시 읽지 않는다 (소유주는 바뀌지 않는다)
+     * 해지된 계좌는 다시 사용 상태가 되지 않으므로 캐시만 보고 바로 실패시키고,
+     * 사용 중이라고 캐시되어 있어도 상태는 validateUseBalance 에서 읽어온 계좌로 다시 확인한다
+     * 캐시에 없거나 소유주가 다르면 null, 기존처럼 사용자부터 확인한다 (USER_NOT_FOUND / USER_ACCOUNT_UNMATCH)
+     */
+    private AccountUser getCachedOwner(Long userId, String accountNumber) {
+        AccountMetadata accountMetadata = accountMetadataCache.get(accountNumber).orElse(null);
+        if (accountMetadata == null || !Objects.equals(accountMetadata.getOwnerId(), userId)) {
+            return null;
+        }
+        if (accountMetadata.getAccountStatus() == AccountStatus.UNREGISTERED) {
+            throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
+        }
+        return AccountUser.builder().id(userId).build(); // 검증에는 id 만 쓴다
+    }
+
+    private TransactionDto applyUseBalance(AccountUser user, Account account, Long amount) {
         validateUseBalance(user, account, amount);
 
         // 1. account 테이블 잔액 변경
-        account.useBalance(amount); //balance를 변경하는 로직은 엔티티 안에 넣어주는 것이 좋음
+        useBalance(account, amount);
 
         // 2. transaction 테이블에 insert
         return TransactionDto.fromEntity(
@@ -69,17 +152,33 @@ public class TransactionService {
             throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
         }
 
-        if (account.getBalance() < amount) {
+        if (getBalance(account) < amount) {
             throw new AccountException(AMOUNT_EXCEED_BALANCE);
         }
     }
 
-    @Transactional
-    public void saveFailedUseTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+    // ledger 를 켜면 잔액은 메모리 원장이 기준이고 Account 엔티티의 잔액은 write-behind 로 나중에 맞춰진다
+    private long getBalance(Account account) {
+        return balanceLedger.isEnabled() ? balanceLedger.getBalance(account) : account.getBalance();
+    }
+
+    private void useBalance(Account account, Long amount) {
+        if (balanceLedger.isEnabled()) {
+            balanceLedger.add(account, -amount);
+        } else {
+            account.useBalance(amount); //balance를 변경하는 로직은 엔티티 안에 넣어주는 것이 좋음
+        }
+    }
 
-        saveAndGetTransaction(USE, F, account, amount);
+    private void cancleBalance(Account account, Long amount) {
+        if (balanceLedger.isEnabled()) {
+            if (amount < 0) {
+                throw new AccountException(INVALID_REQUEST);
+            }
+            balanceLedger.add(account, amount);
+        } else {
+            account.cancleBalance(amount);
+        }
     }
 
     //코드 중복 최소화하면서 저장하는 부분 공통화
@@ -89,34 +188,190 @@ public class TransactionService {
             Account account,
             Long amount
     ) {
-        return transactionRepository.save(
-                Transaction.builder()
-                        .transactionType(transactionType)
-                        .transactionResultType(transactionResultType)
-                        .account(account)
-                        .amount(amount)
-                        .balanceSnapshot(account.getBalance())
-                        .transactionId(UUID.randomUUID().toString().replace("-", "")) //고유한 값으로 UUID 사용 -만 없애줌, UUID인 걸 비밀로 하기 위함
-                        .transactedAt(LocalDateTime.now())
-                        .build()
-        );
+        Transaction transaction = buildTransaction(transactionType, transactionResultType, account, amount);
+        transactionQueryCache.put(TransactionDto.fromEntity(transaction)); // 저장된 거래는 바뀌지 않으므로 미리 캐시에 넣어둔다
+        Transaction saved = transactionRepository.save(transaction);
+        if (transactionResultType == S) {
+            transactionOutbox.append(saved); // 잔액이 바뀐 거래만, 같은 트랜잭션에서 이벤트를 남긴다
+        }
+        return saved;
     }
 
-    @Transactional
+    private Transaction buildTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            Account account,
+            Long amount
+    ) {
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .account(account)
+                .amount(amount)
+                .balanceSnapshot(getBalance(account))
+                .transactionId(UUID.randomUUID().toString().replace("-", "")) //고유한 값으로 UUID 사용 -만 없애줌, UUID인 걸 비밀로 하기 위함
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * 여러 건의 잔액 사용을 하나의 트랜잭션에서 요청 순서대로 처리한다
+     * 사용자와 계좌는 IN 쿼리로 한 번에 읽고, 거래 내역은 saveAll 로 모아서 insert 한다
+     * 건별 실패는 전체를 롤백하지 않고 F 결과로 남긴다 (계좌가 없는 건은 남길 계좌가 없으므로 응답에만 F)
+     */
+    public List<TransactionDto> useBalanceBatch(List<UseBalance.Request> requests) {
+        if (balanceCommandEngine.isSingleWriter()) {
+            return useBalanceBatchOnWorkers(requests);
+        }
+        return transactionTemplate.execute(status -> useBalanceBatchInTransaction(requests));
+    }
+
+    private List<TransactionDto> useBalanceBatchInTransaction(List<UseBalance.Request> requests) {
+        Map<Long, AccountUser> users = accountUserRepository.findAllById(
+                        requests.stream().map(UseBalance.Request::getUserId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(AccountUser::getId, Function.identity()));
+        Map<String, Account> accounts = accountRepository.findByAccountNumberIn(
+                        requests.stream().map(UseBalance.Request::getAccountNumber).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+
+        List<Transaction> transactions = new ArrayList<>(requests.size());
+        for (UseBalance.Request request : requests) {
+            Account account = accounts.get(request.getAccountNumber());
+            if (account == null) {
+                transactions.add(null);
+                continue;
+            }
+            transactions.add(buildTransaction(USE,
+                    useBalanceOrFail(users.get(request.getUserId()), account, request.getAmount()),
+                    account, request.getAmount()));
+        }
+
+        transactionRepository.saveAll(
+                transactions.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+        transactions.stream().filter(Objects::nonNull)
+                .forEach(transaction -> transactionQueryCache.put(TransactionDto.fromEntity(transaction)));
+        transactionOutbox.appendAll(transactions.stream()
+                .filter(transaction -> transaction != null && transaction.getTransactionResultType() == S)
+                .collect(Collectors.toList()));
+
+        List<TransactionDto> transactionDtos = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            transactionDtos.add(transaction != null
+                    ? TransactionDto.fromEntity(transaction)
+                    : failedBatchItem(requests.get(i)));
+        }
+        return transactionDtos;
+    }
+
+    /**
+     * single-writer 모드에는 계좌 락이 없으므로 건마다 계좌를 담당하는 worker 에 넘긴다
+     * 같은 계좌의 요청은 넘긴 순서대로 처리되고, 다른 worker 의 요청들은 동시에 각자의 배치로 커밋된다
+     * 제한 시간 안에 끝나지 않았거나 커밋에 실패한 건은 거래를 남기지 못했으므로 응답에만 F
+     */
+    private List<TransactionDto> useBalanceBatchOnWorkers(List<UseBalance.Request> requests) {
+        List<CompletableFuture<TransactionDto>> futures = new ArrayList<>(requests.size());
+        for (UseBalance.Request request : requests) {
+            try {
+                futures.add(balanceCommandEngine.submit(request.getAccountNumber(),
+                        batch -> useBalanceOnWorker(batch, request)));
+            } catch (AccountException e) { // worker 큐가 가득 찼다
+                futures.add(null);
+            }
+        }
+        try {
+            balanceCommandEngine.await(CompletableFuture.allOf(
+                    futures.stream().filter(Objects::nonNull).toArray(CompletableFuture[]::new)));
+        } catch (RuntimeException e) {
+            log.error("Batch use balance did not complete on workers. {}", e.getMessage());
+        }
+
+        List<TransactionDto> transactionDtos = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CompletableFuture<TransactionDto> future = futures.get(i);
+            TransactionDto transactionDto = null;
+            if (future != null) {
+                future.completeExceptionally(new AccountException(TRANSACTION_OVERLOADED)); // 아직 꺼내지 않았다면 worker 가 건너뛴다
+                transactionDto = future.handle((result, failure) -> result).join();
+            }
+            transactionDtos.add(transactionDto != null ? transactionDto : failedBatchItem(requests.get(i)));
+        }
+        return transactionDtos;
+    }
+
+    private TransactionDto useBalanceOnWorker(BalanceCommandEngine.Batch batch, UseBalance.Request request) {
+        Account account;
+        try {
+            account = batch.getAccount(request.getAccountNumber());
+        } catch (AccountException e) {
+            log.error("Failed to use balance in batch. {}", e.getErrorCode());
+            return failedBatchItem(request);
+        }
+        AccountUser user;
+        try {
+            AccountUser cachedOwner = getCachedOwner(request.getUserId(), request.getAccountNumber());
+            user = cachedOwner != null ? cachedOwner
+                    : accountUserRepository.findById(request.getUserId()).orElse(null);
+        } catch (AccountException e) { // 해지된 계좌, useBalanceOrFail 에서 F 로 남긴다
+            user = AccountUser.builder().id(request.getUserId()).build();
+        }
+        return TransactionDto.fromEntity(saveAndGetTransaction(USE,
+                useBalanceOrFail(user, account, request.getAmount()), account, request.getAmount()));
+    }
+
+    private TransactionDto failedBatchItem(UseBalance.Request request) {
+        return TransactionDto.builder()
+                .accountNumber(request.getAccountNumber())
+                .transactionType(USE)
+                .transactionResultType(F)
+                .amount(request.getAmount())
+                .build();
+    }
+
+    private TransactionResultType useBalanceOrFail(AccountUser user, Account account, Long amount) {
+        try {
+            if (user == null) {
+                throw new AccountException(USER_NOT_FOUND);
+            }
+            validateUseBalance(user, account, amount);
+            useBalance(account, amount);
+            return S;
+        } catch (AccountException e) {
+            log.error("Failed to use balance in batch. {}", e.getErrorCode());
+            return F;
+        }
+    }
+
+    // useBalance 와 같이 명령 엔진을 쓰면 요청 스레드에서는 트랜잭션을 열지 않는다
     public TransactionDto cancleBalance(
             String transactionId,
             String accountNumber,
             Long amount
     ) {
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new TransactionException(TRANSACTION_NOT_FOUND));
+        if (balanceCommandEngine.isEnabled()) {
+            return balanceCommandEngine.execute(accountNumber, batch -> applyCancleBalance(
+                    transactionRepository.findByTransactionId(transactionId)
+                            .orElseThrow(() -> new TransactionException(TRANSACTION_NOT_FOUND)),
+                    batch.getAccount(accountNumber), amount));
+        }
 
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        return transactionTemplate.execute(status -> {
+            Transaction transaction = transactionRepository.findByTransactionId(transactionId)
+                    .orElseThrow(() -> new TransactionException(TRANSACTION_NOT_FOUND));
+
+            Account account = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+
+            return applyCancleBalance(transaction, account, amount);
+        });
+    }
 
+    private TransactionDto applyCancleBalance(Transaction transaction, Account account, Long amount) {
         validateCancleBalance(transaction, account, amount);
 
-        account.cancleBalance(amount);
+        cancleBalance(account, amount);
 
         return TransactionDto.fromEntity(
                 saveAndGetTransaction(CANCEL, S, account, amount)
@@ -135,18 +390,136 @@ public class TransactionService {
         }
     }
 
+    /**
+     * FailedTransactionRecorder 가 모아 둔 실패 거래를 한 번에 저장한다
+     * 계좌는 IN 쿼리 한 번으로 읽고, 없는 계좌의 실패는 남길 계좌가 없으므로 예외 없이 건너뛴다
+     * @return 저장한 건수
+     */
     @Transactional
-    public void saveFailedCancleTransaction(String accountNumber, Long amount) {
+    public int saveFailedTransactions(List<FailedTransaction> failedTransactions) {
+        Map<String, Account> accounts = accountRepository.findByAccountNumberIn(
+                        failedTransactions.stream().map(FailedTransaction::getAccountNumber).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+
+        List<Transaction> transactions = new ArrayList<>(failedTransactions.size());
+        for (FailedTransaction failedTransaction : failedTransactions) {
+            Account account = accounts.get(failedTransaction.getAccountNumber());
+            if (account == null) {
+                log.warn("Skip failed transaction of unknown account : {}", failedTransaction.getAccountNumber());
+                continue;
+            }
+            Transaction transaction = buildTransaction(failedTransaction.getTransactionType(), F,
+                    account, failedTransaction.getAmount());
+            transaction.setTransactedAt(failedTransaction.getFailedAt());
+            transactions.add(transaction);
+        }
+
+        transactionRepository.saveAll(transactions);
+        transactions.forEach(transaction -> transactionQueryCache.put(TransactionDto.fromEntity(transaction)));
+        return transactions.size();
+    }
+
+    /**
+     * 계좌의 거래 내역을 최신순으로 size 건씩 읽는다
+     * offset 대신 이전 페이지 마지막 거래의 (transactedAt, id) 를 cursor 로 받아 그 뒤부터 읽기 때문에
+     * 거래가 수백만 건인 계좌도 몇 번째 페이지든 같은 비용으로 읽는다
+     */
+    @Transactional
+    public TransactionHistoryDto getTransactionHistory(
+            String accountNumber,
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            String cursor,
+            int size
+    ) {
+        if (size < 1 || size > MAX_HISTORY_SIZE) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+
+        // 한 건 더 읽어서 다음 페이지가 있는지 확인한다
+        PageRequest pageRequest = PageRequest.of(0, size + 1);
+        List<Transaction> transactions;
+        if (cursor == null) {
+            transactions = transactionRepository.findHistory(
+                    account, transactionType, transactionResultType, pageRequest);
+        } else {
+            String[] position = decodeCursor(cursor);
+            transactions = transactionRepository.findHistoryBefore(
+                    account, transactionType, transactionResultType,
+                    LocalDateTime.parse(position[0]), Long.parseLong(position[1]), pageRequest);
+        }
+
+        boolean hasNext = transactions.size() > size;
+        List<Transaction> page = hasNext ? transactions.subList(0, size) : transactions;
+        return TransactionHistoryDto.builder()
+                .transactions(page.stream().map(TransactionDto::fromEntity).collect(Collectors.toList()))
+                .nextCursor(hasNext ? encodeCursor(page.get(size - 1)) : null)
+                .build();
+    }
+
+    // 클라이언트가 값을 해석하지 않도록 (transactedAt, id) 를 base64 로 감싼다
+    private static String encodeCursor(Transaction transaction) {
+        String position = transaction.getTransactedAt() + "_" + transaction.getId();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("_");
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) { // 잘못된 base64, 형식이 다른 값
+            throw new AccountException(INVALID_REQUEST);
+        }
+    }
+
+    /**
+     * at 시점의 잔액
+     * 성공한 거래는 잔액을 바꾼 직후의 잔액(balanceSnapshot)을 같이 저장하므로 모든 성공 거래가 체크포인트다
+     * (account_id, transacted_at, id) 인덱스에서 at 이전 마지막 성공 거래 한 건만 읽으면 되고 다시 더할 거래가 없다
+     * 실패 거래는 잠금 밖에서 저장될 수 있어 잔액이 정확하지 않으므로 보지 않는다
+     */
+    @Transactional
+    public long getBalanceAt(String accountNumber, LocalDateTime at) {
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        if (account.getRegisteredAt() != null && at.isBefore(account.getRegisteredAt())) {
+            throw new AccountException(INVALID_REQUEST); // 계좌가 만들어지기 전
+        }
+
+        PageRequest first = PageRequest.of(0, 1);
+        List<Transaction> before = transactionRepository.findHistoryBefore(
+                account, null, S, at, Long.MAX_VALUE, first);
+        if (!before.isEmpty()) {
+            return before.get(0).getBalanceSnapshot();
+        }
 
-        saveAndGetTransaction(CANCEL, F, account, amount);
+        // at 이전에 거래가 없으면 잔액은 개설 당시 그대로, 이후 첫 거래의 snapshot 에서 그 거래만 되돌린다
+        List<Transaction> after = transactionRepository.findHistoryAfter(account, null, S, at, first);
+        if (after.isEmpty()) {
+            return getBalance(account); // 개설 후 거래가 한 번도 없었다
+        }
+        Transaction transaction = after.get(0);
+        return transaction.getTransactionType() == USE
+                ? transaction.getBalanceSnapshot() + transaction.getAmount()
+                : transaction.getBalanceSnapshot() - transaction.getAmount();
     }
 
     public TransactionDto queryTransaction(String transactionId) {
-        return TransactionDto.fromEntity( //일회용 변수는 넣지말자
-                transactionRepository.findByTransactionId(transactionId)
-                        .orElseThrow(() -> new TransactionException(TRANSACTION_NOT_FOUND))
-        );
+        // 캐시에 있으면 JPA 를 거치지 않고 바로 응답한다
+        return transactionQueryCache.get(transactionId)
+                .orElseGet(() -> {
+                    // 계좌 엔티티를 따로 읽지 않도록 계좌번호까지 projection 으로 한 번에 읽는다
+                    TransactionDto transactionDto = transactionRepository.findDtoByTransactionId(transactionId)
+                            .orElseThrow(() -> new TransactionException(TRANSACTION_NOT_FOUND));
+                    transactionQueryCache.put(transactionDto);
+                    return transactionDto;
+                });
     }
 }
@@ -19,7 +19,10 @@ public enum ErrorCode {
     TOO_OLD_ORDER_TO_CANCLE("1년이 지난 거래는 취소가 불가능합니다."),
     ACCOUNT_ALREADY_UNREGISTERED("계좌가 이미 해지되었습니다."),
     BALANCE_NOT_EMPTY("잔액이 있는 계좌는 해지할 수 없습니다"),
-    MAX_ACCOUNT_PER_USER_10("사용자 최대 계좌는 10개입니다.")
+    MAX_ACCOUNT_PER_USER_10("사용자 최대 계좌는 10개입니다."),
+    TRANSACTION_OVERLOADED("처리 중인 거래가 많습니다. 잠시 후 다시 시도해주세요."),
+    IDEMPOTENT_REQUEST_IN_PROGRESS("같은 Idempotency-Key 의 요청을 처리 중입니다. 잠시 후 다시 시도해주세요."),
+    IDEMPOTENCY_KEY_REUSED("이미 다른 요청에 사용한 Idempotency-Key 입니다.")
     ;
 
     // 사용자에게 안내해주는 용도이기 때문에 좀 더 정돈되고 완결성있는 문장을 사용하자, 사용자에게 의도적이지 않게 드러났을때에도 문제의 소지가 없게
@@ -1,7 +1,9 @@
 package com.example.account.controller;
 
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
+import com.example.account.dto.CreateAccountBulk;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.exception.AccountException;
 import com.example.account.service.AccountService;
@@ -18,6 +20,7 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
@@ -84,6 +87,40 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.errorMessage").value("사용자가 없습니다."));
     }
 
+    @Test
+    void SuccessCreateAccounts() throws Exception {
+        //given
+        given(accountService.createAccounts(anyList()))
+                .willReturn(Arrays.asList(
+                        AccountDto.builder()
+                                .userId(1L)
+                                .accountNumber("1000000100")
+                                .registeredAt(LocalDateTime.now())
+                                .build(),
+                        AccountDto.builder()
+                                .userId(2L)
+                                .accountNumber("1000000101")
+                                .registeredAt(LocalDateTime.now())
+                                .build()
+                ));
+        //when
+        //then
+        mockMvc.perform(post("/account/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new CreateAccountBulk.Request(Arrays.asList(
+                                        new CreateAccount.Request(1L, 100L),
+                                        new CreateAccount.Request(2L, 0L)
+                                ))
+                        ))
+                )
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts[0].userId").value(1))
+                .andExpect(jsonPath("$.accounts[0].accountNumber").value("1000000100"))
+                .andExpect(jsonPath("$.accounts[1].accountNumber").value("1000000101"));
+    }
+
     @Test
     void SuccessDeleteAccount() throws Exception {
         //given
@@ -115,21 +152,15 @@ class AccountControllerTest {
     @Test
     void SuccessGetAccountsByUserId() throws Exception {
         //given
-        List<AccountDto> accountDtos =
+        List<AccountInfo> accountInfos =
                 Arrays.asList(
-                        AccountDto.builder()
-                                .accountNumber("1234567890")
-                                .balance(1000L).build(),
-                        AccountDto.builder()
-                                .accountNumber("0123456789")
-                                .balance(2000L).build(),
-                        AccountDto.builder()
-                                .accountNumber("2222222222")
-                                .balance(3000L).build()
+                        new AccountInfo("1234567890", 1000L),
+                        new AccountInfo("0123456789", 2000L),
+                        new AccountInfo("2222222222", 3000L)
                 );
 
-        given(accountService.getAccountsByUserId(anyLong()))
-                .willReturn(accountDtos);
+        given(accountService.getAccountInfosByUserId(anyLong()))
+                .willReturn(accountInfos);
         //when
         //then
         mockMvc.perform(get("/account?user_id=1"))
@@ -1,10 +1,18 @@
 package com.example.account.controller;
 
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.BalanceChangeEvent;
 import com.example.account.dto.CancleBalance;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.exception.AccountException;
+import com.example.account.service.FailedTransactionRecorder;
+import com.example.account.service.TransactionExportService;
+import com.example.account.service.TransactionOutbox;
 import com.example.account.service.TransactionService;
+import com.example.account.type.ErrorCode;
 import com.example.account.type.TransactionType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -13,19 +21,33 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransactionController.class)
@@ -33,6 +55,15 @@ class TransactionControllerTest {
     @MockBean //가짜로 빈을 만들어서 TransactionController에 주입
     private TransactionService transactionService;
 
+    @MockBean
+    private TransactionExportService transactionExportService;
+
+    @MockBean
+    private FailedTransactionRecorder failedTransactionRecorder;
+
+    @MockBean
+    private TransactionOutbox transactionOutbox;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -54,11 +85,16 @@ class TransactionControllerTest {
                         .build());
         //when
         //then
-        mockMvc.perform(post("/transaction/use")
+        // CompletableFuture 로 응답하기 때문에 비동기 처리가 끝난 뒤의 결과를 확인한다
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(
                                 new UseBalance.Request(2L, "임의의계좌번호열자리", 100L)
                         )))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.accountNumber").value("1234567890"))
@@ -69,6 +105,65 @@ class TransactionControllerTest {
                         LocalDateTime.of(1999,8,14,9,18, 12).toString()));
     }
 
+    @Test
+    void failedUseBalance() throws Exception {
+        //given
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+        //when
+        //then
+        mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(2L, "1234567890", 100L)
+                        )))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("AMOUNT_EXCEED_BALANCE"));
+        verify(failedTransactionRecorder).recordUse("1234567890", 100L); // 실패 기록은 큐에 넣기만 한다
+    }
+
+    @Test
+    void successUseBalanceBatch() throws Exception {
+        //given
+        given(transactionService.useBalanceBatch(anyList()))
+                .willReturn(Arrays.asList(
+                        TransactionDto.builder()
+                                .accountNumber("1234567890")
+                                .transactionType(TransactionType.USE)
+                                .transactionResultType(S)
+                                .amount(10L)
+                                .transactionId("firstuuid")
+                                .build(),
+                        TransactionDto.builder()
+                                .accountNumber("1234567891")
+                                .transactionType(TransactionType.USE)
+                                .transactionResultType(F)
+                                .amount(20L)
+                                .build()));
+        //when
+        //then
+        // CompletableFuture 로 응답하기 때문에 비동기 처리가 끝난 뒤의 결과를 확인한다
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalanceBatch.Request(Arrays.asList(
+                                        new UseBalance.Request(2L, "1234567890", 100L),
+                                        new UseBalance.Request(2L, "1234567891", 200L)))
+                        )))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.transactions[0].transactionResult").value("S"))
+                .andExpect(jsonPath("$.transactions[0].transactionId").value("firstuuid"))
+                .andExpect(jsonPath("$.transactions[1].accountNumber").value("1234567891"))
+                .andExpect(jsonPath("$.transactions[1].transactionResult").value("F"));
+    }
+
     @Test
     void successCancleBalance() throws Exception {
         //given
@@ -84,11 +179,16 @@ class TransactionControllerTest {
                         .build());
         //when
         //then
-        mockMvc.perform(post("/transaction/cancle")
+        // CompletableFuture 로 응답하기 때문에 비동기 처리가 끝난 뒤의 결과를 확인한다
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/cancle")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(
                                 new CancleBalance.Request("uuidrandomuuid", "임의의계좌번호열자리", 100L)
                         )))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.accountNumber").value("1234567890"))
@@ -129,4 +229,96 @@ class TransactionControllerTest {
                         LocalDateTime.of(1999,8,14,9,18, 12).toString()));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void successGetTransactionHistory() throws Exception {
+        //given
+        given(transactionService.getTransactionHistory(anyString(), any(), any(), any(), anyInt()))
+                .willReturn(TransactionHistoryDto.builder()
+                        .transactions(Collections.singletonList(
+                                TransactionDto.builder()
+                                        .accountNumber("1234567890")
+                                        .transactionType(TransactionType.USE)
+                                        .transactionResultType(S)
+                                        .amount(10L)
+                                        .transactionId("abcdefghijklmnthisisuuidrandomuuid")
+                                        .transactedAt(LocalDateTime.of(1999,8,14,9,18, 12))
+                                        .build()))
+                        .nextCursor("nextcursor")
+                        .build());
+        //when
+        //then
+        mockMvc.perform(get("/account/1234567890/transactions?transaction_type=USE&size=1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.transactions[0].transactionType").value("USE"))
+                .andExpect(jsonPath("$.transactions[0].transactionId").value("abcdefghijklmnthisisuuidrandomuuid"))
+                .andExpect(jsonPath("$.nextCursor").value("nextcursor"));
+        verify(transactionService).getTransactionHistory("1234567890", TransactionType.USE, null, null, 1);
+    }
+
+    @Test
+    void successGetBalanceAt() throws Exception {
+        //given
+        given(transactionService.getBalanceAt(anyString(), any()))
+                .willReturn(9000L);
+        //when
+        //then
+        mockMvc.perform(get("/account/1234567890/balance?at=2022-06-01T12:00:00"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.balance").value(9000));
+        verify(transactionService).getBalanceAt("1234567890", LocalDateTime.of(2022, 6, 1, 12, 0));
+    }
+
+    @Test
+    void successGetBalanceChangeEvents() throws Exception {
+        //given
+        given(transactionOutbox.getEventsAfter(anyLong(), anyInt()))
+                .willReturn(Collections.singletonList(
+                        BalanceChangeEvent.builder()
+                                .sequence(11L)
+                                .accountNumber("1234567890")
+                                .transactionType(TransactionType.USE)
+                                .amount(10L)
+                                .balanceSnapshot(990L)
+                                .transactionId("abcdefghijklmnthisisuuidrandomuuid")
+                                .build()));
+        //when
+        //then
+        mockMvc.perform(get("/transaction/events?after=10&size=1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events[0].sequence").value(11))
+                .andExpect(jsonPath("$.events[0].balanceSnapshot").value(990))
+                .andExpect(jsonPath("$.nextCursor").value(11)); // 다음 요청은 마지막 이벤트 뒤부터
+        verify(transactionOutbox).getEventsAfter(10L, 1);
+    }
+
+    @Test
+    void successExportTransactions() throws Exception {
+        //given
+        willAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(4);
+            outputStream.write("{\"transactionId\":\"first\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).given(transactionExportService)
+                .export(anyString(), any(), any(), any(), any());
+        //when
+        //then
+        // 응답 본문은 비동기로 쓰이기 때문에 asyncDispatch 후에 확인한다
+        MvcResult mvcResult = mockMvc.perform(get("/transaction/export?account_number=1234567890"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(content().string("{\"transactionId\":\"first\"}\n"));
+        verify(transactionExportService).validateExport("1234567890", null, null);
+    }
+}
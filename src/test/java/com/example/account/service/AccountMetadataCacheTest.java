@@ -0,0 +1,85 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.type.AccountStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountMetadataCacheTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RTopic invalidationTopic;
+
+    private AccountMetadataCache accountMetadataCache;
+
+    private final ArgumentCaptor<MessageListener<String>> listenerCaptor =
+            ArgumentCaptor.forClass(MessageListener.class);
+
+    @BeforeEach
+    void setUp() {
+        given(redissonClient.getTopic(anyString())).willReturn(invalidationTopic);
+        accountMetadataCache = new AccountMetadataCache(redissonClient, new SimpleMeterRegistry(),
+                true, 100, 60000, false);
+        verify(invalidationTopic).addListener(eq(String.class), listenerCaptor.capture());
+    }
+
+    @Test
+    void getAfterPut() {
+        //given
+        accountMetadataCache.put(account());
+        //when
+        AccountMetadata accountMetadata = accountMetadataCache.get("1000000012").orElseThrow(AssertionError::new);
+        //then
+        assertEquals(12L, accountMetadata.getOwnerId());
+        assertEquals(AccountStatus.IN_USE, accountMetadata.getAccountStatus());
+    }
+
+    @Test
+    void evictPublishesInvalidation() {
+        //given
+        accountMetadataCache.put(account());
+        //when
+        accountMetadataCache.evict("1000000012");
+        //then
+        assertFalse(accountMetadataCache.get("1000000012").isPresent());
+        verify(invalidationTopic).publish("1000000012"); // 다른 인스턴스의 캐시도 지운다
+    }
+
+    @Test
+    void invalidateOnMessageFromOtherInstance() {
+        //given
+        accountMetadataCache.put(account());
+        //when
+        listenerCaptor.getValue().onMessage("ACCOUNT_METADATA_INVALIDATION", "1000000012");
+        //then
+        assertFalse(accountMetadataCache.get("1000000012").isPresent());
+    }
+
+    private Account account() {
+        return Account.builder()
+                .accountUser(AccountUser.builder().id(12L).name("Pobi").build())
+                .accountNumber("1000000012")
+                .accountStatus(AccountStatus.IN_USE)
+                .build();
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.account.service;
 
+import com.example.account.config.AccountBulkProperties;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.CreateAccount;
+import com.example.account.dto.UserAccountCount;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
@@ -14,10 +19,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +34,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -36,6 +46,21 @@ class AccountServiceTest {
     @Mock
     private AccountUserRepository accountUserRepository;
 
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Mock
+    private BalanceLedger balanceLedger;
+
+    @Mock
+    private AccountMetadataCache accountMetadataCache;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private AccountBulkProperties accountBulkProperties = new AccountBulkProperties();
+
     @InjectMocks
     private AccountService accountService;
 
@@ -47,11 +72,8 @@ class AccountServiceTest {
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.of(user));
 
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.of(
-                        Account.builder()
-                                .accountNumber("1000000012").build() //의미 있는 필드인 accountNumber만
-                ));
+        given(accountNumberAllocator.allocate())
+                .willReturn("1000000013");
 
         given(accountRepository.save(any()))
                 .willReturn(
@@ -70,34 +92,86 @@ class AccountServiceTest {
         assertEquals("1000000013", captor.getValue().getAccountNumber());
     }
 
+
     @Test
-    @DisplayName("기존에 생성된 계좌 없음 - 계좌 생성 성공")
-    void successCreateFirstAccount() {
+    @DisplayName("계좌 대량 생성 성공 - 연속된 계좌번호로 한 번에 저장")
+    void successCreateAccounts() {
         //given
-        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(user));
+        AccountUser pobi = AccountUser.builder().id(12L).name("Pobi").build();
+        AccountUser crong = AccountUser.builder().id(13L).name("Crong").build();
+        given(accountUserRepository.findAllById(any()))
+                .willReturn(Arrays.asList(pobi, crong));
+        given(accountRepository.countByAccountUserIds(any()))
+                .willReturn(Collections.singletonList(new UserAccountCount(12L, 8L)));
+        given(accountNumberAllocator.allocate(3))
+                .willReturn(Arrays.asList("1000000100", "1000000101", "1000000102"));
+        given(accountRepository.saveAll(anyList()))
+                .willAnswer(invocation -> new ArrayList<>(invocation.<List<Account>>getArgument(0)));
+        accountBulkProperties.setChunkSize(2);
 
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.empty());
+        //when
+        List<AccountDto> accountDtos = accountService.createAccounts(Arrays.asList(
+                new CreateAccount.Request(12L, 100L),
+                new CreateAccount.Request(13L, 0L),
+                new CreateAccount.Request(12L, 200L)
+        ));
 
-        given(accountRepository.save(any()))
-                .willReturn(
-                        Account.builder()
-                                .accountUser(user)
-                                .accountNumber("임의의계좌번호").build()
-                );
+        //then
+        verify(accountRepository, times(2)).saveAll(anyList()); // chunk 2개 : 2건 + 1건
+        verify(accountRepository, never()).countByAccountUser(any());
+        verify(entityManager, times(2)).clear();
+        assertEquals(3, accountDtos.size());
+        assertEquals(12L, accountDtos.get(0).getUserId());
+        assertEquals("1000000100", accountDtos.get(0).getAccountNumber());
+        assertEquals(13L, accountDtos.get(1).getUserId());
+        assertEquals("1000000101", accountDtos.get(1).getAccountNumber());
+        assertEquals(200L, accountDtos.get(2).getBalance());
+        assertEquals("1000000102", accountDtos.get(2).getAccountNumber());
+    }
 
-        ArgumentCaptor<Account> captor = ArgumentCaptor.forClass(Account.class); //실제로 저장되는 Account가 들어감
+    @Test
+    @DisplayName("계좌 대량 생성 실패 - 기존 계좌와 합쳐 10개 초과")
+    void createAccounts_maxAccountIs10() {
+        //given
+        AccountUser pobi = AccountUser.builder().id(12L).name("Pobi").build();
+        given(accountUserRepository.findAllById(any()))
+                .willReturn(Collections.singletonList(pobi));
+        given(accountRepository.countByAccountUserIds(any()))
+                .willReturn(Collections.singletonList(new UserAccountCount(12L, 9L)));
 
         //when
-        AccountDto accountDto = accountService.createAccount(1L, 100L);
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountService.createAccounts(Arrays.asList(
+                        new CreateAccount.Request(12L, 100L),
+                        new CreateAccount.Request(12L, 100L)
+                )));
+
         //then
-        verify(accountRepository, times(1)).save(captor.capture());
-        assertEquals(12L, accountDto.getUserId());
-        assertEquals("1000000000", captor.getValue().getAccountNumber());
+        assertEquals(ErrorCode.MAX_ACCOUNT_PER_USER_10, exception.getErrorCode());
+        verify(accountNumberAllocator, never()).allocate(anyInt());
+        verify(accountRepository, never()).saveAll(anyList());
     }
 
+    @Test
+    @DisplayName("계좌 대량 생성 실패 - 없는 사용자가 섞여 있음")
+    void createAccounts_UserNotFound() {
+        //given
+        AccountUser pobi = AccountUser.builder().id(12L).name("Pobi").build();
+        given(accountUserRepository.findAllById(any()))
+                .willReturn(Collections.singletonList(pobi));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountService.createAccounts(Arrays.asList(
+                        new CreateAccount.Request(12L, 100L),
+                        new CreateAccount.Request(99L, 100L)
+                )));
+
+        //then
+        assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
+        verify(accountRepository, never()).countByAccountUserIds(any());
+        verify(accountRepository, never()).saveAll(anyList());
+    }
     @Test
     @DisplayName("해당 유저 없음 - 계좌 생성 실패")
     void failedCreateAccount_UserNotFound() {
@@ -155,6 +229,49 @@ class AccountServiceTest {
         assertEquals(AccountStatus.UNREGISTERED, captor.getValue().getAccountStatus());
     }
 
+    @Test
+    void successDeleteAccountWithCachedOwner() {
+        //given
+        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(AccountMetadata.builder()
+                        .accountNumber("1000000012")
+                        .ownerId(12L)
+                        .accountStatus(AccountStatus.IN_USE)
+                        .build()));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(
+                        Account.builder()
+                                .accountUser(user)
+                                .balance(0L)
+                                .accountStatus(AccountStatus.IN_USE)
+                                .accountNumber("1000000012").build()
+                ));
+        //when
+        AccountDto accountDto = accountService.deleteAccount(12L, "1000000012");
+        //then
+        verify(accountUserRepository, never()).findById(anyLong()); // 소유주는 캐시로 확인
+        verify(accountMetadataCache).evict("1000000012");
+        assertEquals(12L, accountDto.getUserId());
+    }
+
+    @Test
+    void failedDeleteAccount_cachedUnregistered() {
+        //given
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(AccountMetadata.builder()
+                        .accountNumber("1000000012")
+                        .ownerId(12L)
+                        .accountStatus(AccountStatus.UNREGISTERED)
+                        .build()));
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountService.deleteAccount(12L, "1000000012"));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_UNREGISTERED, exception.getErrorCode());
+        verify(accountRepository, never()).findByAccountNumber(anyString()); // DB 를 거치지 않는다
+    }
+
     @Test
     @DisplayName("해당 유저 없음 - 계좌 해지 실패")
     void faileddeleteAccount_UserNotFound() {
@@ -269,58 +386,32 @@ class AccountServiceTest {
     }
 
     @Test
-    void successGetAccountsByUserId() {
+    void successGetAccountInfosByUserId() {
         //given
-        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
-        List<Account> accounts = Arrays.asList(
-                Account.builder()
-                        .accountUser(user)
-                        .balance(100L)
-                        .accountNumber("1000000012")
-                        .registeredAt(LocalDateTime.now())
-                        .unRegisteredAt(LocalDateTime.now())
-                        .build(),
-                Account.builder()
-                        .accountUser(user)
-                        .balance(1000L)
-                        .accountNumber("1000000013")
-                        .registeredAt(LocalDateTime.now())
-                        .unRegisteredAt(LocalDateTime.now())
-                        .build(),
-                Account.builder()
-                        .accountUser(user)
-                        .balance(2000L)
-                        .accountNumber("1000000014")
-                        .registeredAt(LocalDateTime.now())
-                        .unRegisteredAt(LocalDateTime.now())
-                        .build()
-        );
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(user));
-        given(accountRepository.findByAccountUser(any()))
-                .willReturn(accounts);
+        given(accountRepository.findAccountInfosByAccountUserId(anyLong()))
+                .willReturn(Arrays.asList(
+                        new AccountInfo("1000000012", 100L),
+                        new AccountInfo("1000000013", 1000L)));
         //when
-        List<AccountDto> accountDtos = accountService.getAccountsByUserId(12L);
+        List<AccountInfo> accountInfos = accountService.getAccountInfosByUserId(12L);
         //then
-        assertEquals(3, accountDtos.size());
-        assertEquals("1000000012", accountDtos.get(0).getAccountNumber());
-        assertEquals(100L, accountDtos.get(0).getBalance());
-        assertEquals("1000000013", accountDtos.get(1).getAccountNumber());
-        assertEquals(1000L, accountDtos.get(1).getBalance());
-        assertEquals("1000000014", accountDtos.get(2).getAccountNumber());
-        assertEquals(2000L, accountDtos.get(2).getBalance());
+        verify(accountUserRepository, times(0)).findById(anyLong()); // 계좌가 있으면 사용자 조회 없이 쿼리 한 번
+        assertEquals(2, accountInfos.size());
+        assertEquals("1000000012", accountInfos.get(0).getAccountNumber());
+        assertEquals(1000L, accountInfos.get(1).getBalance());
     }
 
     @Test
-    void failedGetAccountsByUserId() {
+    void failedGetAccountInfosByUserId() {
         //given
+        given(accountRepository.findAccountInfosByAccountUserId(anyLong()))
+                .willReturn(Collections.emptyList());
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.empty());
         //when
         AccountException exception = assertThrows(AccountException.class,
-                () -> accountService.getAccountsByUserId(12L));
+                () -> accountService.getAccountInfosByUserId(12L));
         //then
         assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
     }
-
-}
\ No newline at end of file
+}
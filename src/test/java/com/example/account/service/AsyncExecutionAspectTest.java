@@ -0,0 +1,88 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncExecutionAspectTest {
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    // 동시에 하나만 처리하는 플랫폼 스레드 실행기
+    private final TransactionExecutor transactionExecutor =
+            new TransactionExecutor(new SimpleMeterRegistry(), false, 2, 1);
+
+    private final AsyncExecutionAspect asyncExecutionAspect =
+            new AsyncExecutionAspect(transactionExecutor);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transactionExecutor.destroy();
+    }
+
+    @Test
+    void proceedOnExecutorThread() throws Throwable {
+        //given
+        Thread callerThread = Thread.currentThread();
+        given(proceedingJoinPoint.proceed()).willAnswer(invocation -> {
+            assertNotEquals(callerThread, Thread.currentThread());
+            return CompletableFuture.completedFuture("success");
+        });
+        //when
+        Object result = asyncExecutionAspect.aroundMethod(proceedingJoinPoint);
+        //then
+        assertEquals("success", ((CompletableFuture<?>) result).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void completeExceptionallyWithBusinessException() throws Throwable {
+        //given
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+        //when
+        Object result = asyncExecutionAspect.aroundMethod(proceedingJoinPoint);
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> ((CompletableFuture<?>) result).get(1, TimeUnit.SECONDS));
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+    }
+
+    @Test
+    void rejectWhenOverloaded() throws Throwable {
+        //given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(proceedingJoinPoint.proceed()).willAnswer(invocation -> {
+            started.countDown();
+            release.await(); // 락 대기로 오래 걸리는 요청
+            return CompletableFuture.completedFuture("success");
+        });
+        Object first = asyncExecutionAspect.aroundMethod(proceedingJoinPoint);
+        started.await(1, TimeUnit.SECONDS);
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> asyncExecutionAspect.aroundMethod(proceedingJoinPoint));
+        release.countDown();
+        //then
+        assertEquals(ErrorCode.TRANSACTION_OVERLOADED, exception.getErrorCode());
+        assertEquals("success", ((CompletableFuture<?>) first).get(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceCommandEngineTest {
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private BalanceCommandEngine balanceCommandEngine;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (balanceCommandEngine != null) {
+            balanceCommandEngine.destroy();
+        }
+    }
+
+    @Test
+    void disabledOnLockMode() {
+        //given
+        //when
+        balanceCommandEngine = newEngine("lock");
+        //then
+        assertFalse(balanceCommandEngine.isEnabled());
+    }
+
+    @Test
+    void applyCommandsOfAccountInOrder() throws Exception {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        balanceCommandEngine = newEngine("single-writer");
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+        //when
+        for (int i = 0; i < 100; i++) {
+            int order = i;
+            balanceCommandEngine.execute("1000000012", batch -> applied.add(order));
+        }
+        //then
+        assertTrue(balanceCommandEngine.isEnabled());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, applied.get(i));
+        }
+    }
+
+    @Test
+    void shareAccountInBatch() throws Exception {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        Account account = Account.builder().accountNumber("1000000012").balance(1000L).build();
+        given(accountRepository.findByAccountNumber("1000000012")).willReturn(Optional.of(account));
+        balanceCommandEngine = newEngine("single-writer");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        //when
+        // 첫 명령이 worker 를 붙잡고 있는 동안 나머지 명령이 큐에 쌓여서 한 배치로 처리된다
+        Future<?> first = callers.submit(() -> balanceCommandEngine.execute("1000000012", batch -> {
+            blocked.countDown();
+            await(release);
+            return null;
+        }));
+        blocked.await(1, TimeUnit.SECONDS);
+        List<Future<Long>> others = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            others.add(callers.submit(() -> balanceCommandEngine.execute("1000000012", batch -> {
+                Account target = batch.getAccount("1000000012");
+                target.useBalance(100L);
+                return target.getBalance();
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        first.get(1, TimeUnit.SECONDS);
+        //then
+        List<Long> balances = new ArrayList<>();
+        for (Future<Long> other : others) {
+            balances.add(other.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(700L, Collections.min(balances));
+        verify(accountRepository, times(1)).findByAccountNumber("1000000012"); // 배치 안에서는 한 번만 읽는다
+        callers.shutdown();
+    }
+
+    @Test
+    void failOnlyInvalidCommand() {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        balanceCommandEngine = newEngine("single-writer");
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceCommandEngine.execute("1000000012", batch -> {
+                    throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+                }));
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        assertEquals("success", balanceCommandEngine.execute("1000000012", batch -> "success"));
+    }
+
+    @Test
+    void failedCommitFailsCommand() {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        willThrow(new DataAccessResourceFailureException("commit failed"))
+                .given(transactionManager).commit(any());
+        balanceCommandEngine = newEngine("single-writer");
+        //when
+        //then
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> balanceCommandEngine.execute("1000000012", batch -> "success"));
+    }
+
+    @Test
+    void groupCommitWithinLinger() throws Exception {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        balanceCommandEngine = new BalanceCommandEngine(transactionManager, accountRepository,
+                new SimpleMeterRegistry(), "lock", "group", 1, 1000, 256, 500_000L, 10_000L);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        //when
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String accountNumber = "100000001" + i;
+            results.add(callers.submit(() -> balanceCommandEngine.execute(accountNumber, batch -> accountNumber)));
+        }
+        //then
+        for (int i = 0; i < 4; i++) {
+            assertEquals("100000001" + i, results.get(i).get(1, TimeUnit.SECONDS));
+        }
+        assertTrue(balanceCommandEngine.isEnabled());
+        verify(transactionManager, times(1)).commit(any()); // 서로 다른 계좌의 요청도 한 번에 커밋된다
+        callers.shutdown();
+    }
+
+    @Test
+    void timeoutFailsWithOverloaded() {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        balanceCommandEngine = new BalanceCommandEngine(transactionManager, accountRepository,
+                new SimpleMeterRegistry(), "single-writer", "single", 1, 1000, 256, 2000L, 100L);
+        CountDownLatch release = new CountDownLatch(1);
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceCommandEngine.execute("1000000012", batch -> {
+                    await(release);
+                    return null;
+                }));
+        release.countDown();
+        //then
+        assertEquals(ErrorCode.TRANSACTION_OVERLOADED, exception.getErrorCode());
+    }
+
+    @Test
+    void destroyFailsQueuedCommands() throws Exception {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        balanceCommandEngine = newEngine("single-writer");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        Future<?> first = callers.submit(() -> balanceCommandEngine.execute("1000000012", batch -> {
+            blocked.countDown();
+            await(release);
+            return null;
+        }));
+        blocked.await(1, TimeUnit.SECONDS);
+        Future<String> queued = callers.submit(() -> balanceCommandEngine.execute("1000000012", batch -> "applied"));
+        Thread.sleep(100);
+        //when
+        release.countDown();
+        first.get(1, TimeUnit.SECONDS);
+        balanceCommandEngine.destroy();
+        //then
+        // worker 가 멈추기 전에 꺼냈으면 실행되고, 남아 있었다면 기다리지 않고 실패한다
+        try {
+            assertEquals("applied", queued.get(1, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            assertEquals(ErrorCode.TRANSACTION_OVERLOADED, ((AccountException) e.getCause()).getErrorCode());
+        }
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceCommandEngine.execute("1000000012", batch -> "applied"));
+        assertEquals(ErrorCode.TRANSACTION_OVERLOADED, exception.getErrorCode());
+        callers.shutdown();
+    }
+
+    @Test
+    void workerErrorFailsPendingCommands() {
+        //given
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        willThrow(new StackOverflowError())
+                .willDoNothing()
+                .given(transactionManager).commit(any());
+        balanceCommandEngine = newEngine("single-writer");
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceCommandEngine.execute("1000000012", batch -> "success"));
+        //then
+        assertEquals(ErrorCode.INTERNAL_SERVER_ERROR, exception.getErrorCode());
+        assertEquals("success", balanceCommandEngine.execute("1000000012", batch -> "success")); // worker 는 계속 동작한다
+    }
+
+    private BalanceCommandEngine newEngine(String concurrencyMode) {
+        return new BalanceCommandEngine(transactionManager, accountRepository,
+                new SimpleMeterRegistry(), concurrencyMode, "single", 2, 1000, 256, 2000L, 10_000L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
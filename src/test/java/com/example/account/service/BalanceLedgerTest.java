@@ -0,0 +1,208 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceLedgerTest {
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directory;
+
+    private BalanceLedger balanceLedger;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+        if (balanceLedger != null) {
+            balanceLedger.destroy();
+        }
+    }
+
+    @Test
+    void loadBalanceOnceFromAccount() throws IOException {
+        //given
+        balanceLedger = newLedger("lock");
+        Account account = Account.builder().id(1L).balance(1000L).build();
+        //when
+        long balance = balanceLedger.add(account, -300L);
+        account.setBalance(1000L); // DB 에서 다시 읽은 잔액은 write-behind 전이라 예전 값이다
+        //then
+        assertEquals(700L, balance);
+        assertEquals(700L, balanceLedger.getBalance(account));
+    }
+
+    @Test
+    void failedAddIfBalanceNotEnough() throws IOException {
+        //given
+        balanceLedger = newLedger("lock");
+        Account account = Account.builder().id(1L).balance(100L).build();
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceLedger.add(account, -300L));
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        assertEquals(100L, balanceLedger.getBalance(account));
+    }
+
+    @Test
+    void restoreBalanceOnRollback() throws IOException {
+        //given
+        balanceLedger = newLedger("lock");
+        Account account = Account.builder().id(1L).balance(1000L).build();
+        TransactionSynchronizationManager.initSynchronization();
+        //when
+        balanceLedger.add(account, -100L);
+        balanceLedger.add(account, -200L);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        //then
+        assertEquals(1000L, balanceLedger.getBalance(account));
+    }
+
+    @Test
+    void recoverAfterRestart() throws IOException {
+        //given
+        balanceLedger = newLedger("lock");
+        balanceLedger.add(Account.builder().id(1L).balance(1000L).build(), -400L);
+        balanceLedger.destroy();
+        //when
+        balanceLedger = newLedger("lock");
+        //then
+        assertEquals(600L, balanceLedger.getBalance(Account.builder().id(1L).balance(1000L).build()));
+    }
+
+    @Test
+    void journalPreparedAndCommitted() throws IOException {
+        //given
+        balanceLedger = newLedger("lock");
+        Account account = Account.builder().id(1L).balance(1000L).build();
+        TransactionSynchronizationManager.initSynchronization();
+        //when
+        balanceLedger.add(account, -100L);
+        balanceLedger.add(account, -200L);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clear();
+        balanceLedger.destroy();
+        balanceLedger = newLedger("lock");
+        balanceLedger.afterSingletonsInstantiated();
+        //then
+        assertEquals(700L, balanceLedger.getBalance(Account.builder().id(1L).balance(1000L).build()));
+    }
+
+    @Test
+    void resolveInDoubtFromCommittedTransaction() throws IOException {
+        //given
+        BalanceLedger crashed = newLedger("lock");
+        TransactionSynchronizationManager.initSynchronization();
+        crashed.add(Account.builder().id(1L).balance(1000L).build(), -400L);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+        // DB 커밋은 됐지만 COMMITTED 를 남기기 전에 프로세스가 죽었다
+        TransactionSynchronizationManager.clear();
+        given(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Long>>any(), eq(1L)))
+                .willReturn(Collections.singletonList(600L));
+        //when
+        balanceLedger = newLedger("lock");
+        balanceLedger.afterSingletonsInstantiated();
+        //then
+        assertEquals(600L, balanceLedger.getBalance(Account.builder().id(1L).balance(1000L).build()));
+        crashed.destroy();
+    }
+
+    @Test
+    void discardInDoubtWithoutCommittedTransaction() throws IOException {
+        //given
+        BalanceLedger crashed = newLedger("lock");
+        crashed.add(Account.builder().id(1L).balance(1000L).build(), -100L); // 커밋된 변경
+        TransactionSynchronizationManager.initSynchronization();
+        crashed.add(Account.builder().id(1L).balance(1000L).build(), -400L);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+        // PREPARED 를 남긴 뒤 DB 커밋 전에 프로세스가 죽었다, DB 에는 성공 거래가 없다
+        TransactionSynchronizationManager.clear();
+        given(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Long>>any(), eq(1L)))
+                .willReturn(Collections.emptyList());
+        //when
+        balanceLedger = newLedger("lock");
+        balanceLedger.afterSingletonsInstantiated();
+        //then
+        assertEquals(900L, balanceLedger.getBalance(Account.builder().id(1L).balance(1000L).build()));
+        crashed.destroy();
+    }
+
+    @Test
+    void discardChangeIfCrashedBeforeCommit() throws IOException {
+        //given
+        BalanceLedger crashed = newLedger("lock");
+        crashed.add(Account.builder().id(1L).balance(1000L).build(), -100L); // 커밋된 변경
+        TransactionSynchronizationManager.initSynchronization();
+        //when
+        long inFlight = crashed.add(Account.builder().id(1L).balance(1000L).build(), -400L);
+        // 커밋 전에 프로세스가 죽었다고 보고 destroy 없이 같은 디렉토리에서 다시 복구한다
+        TransactionSynchronizationManager.clear();
+        balanceLedger = newLedger("lock");
+        //then
+        assertEquals(500L, inFlight);
+        assertEquals(900L, balanceLedger.getBalance(Account.builder().id(1L).balance(1000L).build()));
+        crashed.destroy();
+    }
+
+    @Test
+    void rejectOptimisticMode() {
+        //given
+        //when
+        //then
+        assertThrows(IllegalStateException.class, () -> newLedger("optimistic"));
+    }
+
+    @Test
+    void rejectRedisLockMode() {
+        //given
+        //when
+        //then
+        assertThrows(IllegalStateException.class, () -> new BalanceLedger(transactionManager, jdbcTemplate,
+                new SimpleMeterRegistry(), true, "lock", "redis", directory.toString(), 60_000L, 60_000L));
+    }
+
+    private BalanceLedger newLedger(String concurrencyMode) throws IOException {
+        return new BalanceLedger(transactionManager, jdbcTemplate, new SimpleMeterRegistry(),
+                true, concurrencyMode, "local", directory.toString(), 60_000L, 60_000L);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.account.service;
+
+import com.example.account.dto.FailedTransaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FailedTransactionRecorderTest {
+    @Mock
+    private TransactionService transactionService;
+
+    @Test
+    void saveOnWriterThread() throws InterruptedException {
+        //given
+        Thread callerThread = Thread.currentThread();
+        CountDownLatch saved = new CountDownLatch(1);
+        given(transactionService.saveFailedTransactions(anyList())).willAnswer(invocation -> {
+            assertNotEquals(callerThread, Thread.currentThread());
+            saved.countDown();
+            return 1;
+        });
+        FailedTransactionRecorder recorder = newRecorder(true, 10);
+        //when
+        recorder.recordUse("1000000000", 1000L);
+        //then
+        assertTrue(saved.await(1, TimeUnit.SECONDS));
+        recorder.destroy();
+    }
+
+    @Test
+    void saveInCallerThreadWhenQueueIsFull() throws InterruptedException {
+        //given
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread callerThread = Thread.currentThread();
+        given(transactionService.saveFailedTransactions(anyList())).willAnswer(invocation -> {
+            if (Thread.currentThread() != callerThread) {
+                writerBlocked.countDown();
+                release.await(); // writer 가 DB 에서 밀리는 상황
+            }
+            return 1;
+        });
+        FailedTransactionRecorder recorder = newRecorder(true, 1);
+        recorder.recordUse("1000000000", 1000L);
+        assertTrue(writerBlocked.await(1, TimeUnit.SECONDS));
+        recorder.recordUse("1000000000", 2000L); // 큐 한 칸을 채운다
+        //when
+        recorder.recordCancle("1000000000", 3000L);
+        //then
+        ArgumentCaptor<List<FailedTransaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionService, times(2)).saveFailedTransactions(captor.capture());
+        FailedTransaction overflowed = captor.getAllValues().get(1).get(0);
+        assertEquals(CANCEL, overflowed.getTransactionType()); // 넘친 건은 요청 스레드에서 바로 저장
+        assertEquals(3000L, overflowed.getAmount());
+        release.countDown();
+        recorder.destroy();
+    }
+
+    @Test
+    void saveInCallerThreadWhenSync() throws InterruptedException {
+        //given
+        FailedTransactionRecorder recorder = newRecorder(false, 10);
+        ArgumentCaptor<List<FailedTransaction>> captor = ArgumentCaptor.forClass(List.class);
+        //when
+        recorder.recordUse("1000000000", 1000L);
+        //then
+        verify(transactionService).saveFailedTransactions(captor.capture());
+        assertEquals(USE, captor.getValue().get(0).getTransactionType());
+        recorder.destroy();
+    }
+
+    @Test
+    void keepWritingAfterSaveFailure() throws InterruptedException {
+        //given
+        given(transactionService.saveFailedTransactions(anyList()))
+                .willThrow(new IllegalStateException("db down"))
+                .willReturn(1);
+        FailedTransactionRecorder recorder = newRecorder(true, 10);
+        //when
+        recorder.recordUse("1000000000", 1000L);
+        verify(transactionService, timeout(1000).times(1)).saveFailedTransactions(anyList());
+        recorder.recordUse("1000000000", 2000L);
+        //then
+        verify(transactionService, timeout(1000).times(2)).saveFailedTransactions(anyList());
+        recorder.destroy();
+    }
+
+    private FailedTransactionRecorder newRecorder(boolean async, int queueSize) {
+        return new FailedTransactionRecorder(transactionService, new SimpleMeterRegistry(),
+                async, queueSize, 100, 10L);
+    }
+}
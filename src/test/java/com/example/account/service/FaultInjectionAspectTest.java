@@ -0,0 +1,64 @@
+package com.example.account.service;
+
+import com.example.account.config.FaultInjectionProperties;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FaultInjectionAspectTest {
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    private final FaultInjectionProperties properties = new FaultInjectionProperties();
+
+    private FaultInjectionAspect faultInjectionAspect;
+
+    @BeforeEach
+    void setUp() {
+        FaultInjectionProperties.Rule rule = new FaultInjectionProperties.Rule();
+        rule.setAccountPattern(Pattern.compile("99.*"));
+        rule.setProbability(1.0);
+        rule.setDelayMillis(10L);
+        rule.setErrorCode(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        properties.setRules(Collections.singletonList(rule));
+        faultInjectionAspect = new FaultInjectionAspect(properties);
+    }
+
+    @Test
+    void injectFault_matchedAccount() throws Throwable {
+        //given
+        UseBalance.Request request = new UseBalance.Request(1L, "9900000000", 1000L);
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> faultInjectionAspect.aroundMethod(proceedingJoinPoint, request));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    void proceed_unmatchedAccount() throws Throwable {
+        //given
+        UseBalance.Request request = new UseBalance.Request(1L, "1000000000", 1000L);
+        //when
+        faultInjectionAspect.aroundMethod(proceedingJoinPoint, request);
+        //then
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+}
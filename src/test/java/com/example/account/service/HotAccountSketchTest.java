@@ -0,0 +1,85 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotAccountSketchTest {
+    @Test
+    void topAccounts() {
+        //given
+        HotAccountSketch sketch = new HotAccountSketch(10);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("1000000000"); // 가장 많이 락을 잡는 계좌
+        }
+        for (int i = 0; i < 50; i++) {
+            sketch.add("1000000001");
+        }
+        for (int i = 0; i < 100; i++) {
+            sketch.add(String.valueOf(2000000000L + i)); // 한 번씩만 등장하는 계좌들
+        }
+        //when
+        List<HotAccountSketch.Entry> top = sketch.top(2);
+        //then
+        assertEquals(2, top.size());
+        assertEquals("1000000000", top.get(0).getAccountNumber());
+        assertEquals(100L, top.get(0).getCount());
+        assertEquals("1000000001", top.get(1).getAccountNumber());
+    }
+
+    @Test
+    void evictSmallestCounter() {
+        //given
+        HotAccountSketch sketch = new HotAccountSketch(2, 1);
+        for (int i = 0; i < 3; i++) {
+            sketch.add("1000000000");
+        }
+        sketch.add("1000000001");
+        //when
+        sketch.add("1000000002"); // 1000000001(1) 을 넘겨받는다
+        sketch.add("1000000003"); // 1000000002(2) 를 넘겨받는다
+        List<HotAccountSketch.Entry> top = sketch.top(2);
+        //then
+        assertEquals(2, top.size());
+        assertEquals(3L, top.get(0).getCount());
+        assertEquals(3L, top.get(1).getCount());
+        HotAccountSketch.Entry evicted = top.get(0).getAccountNumber().equals("1000000003") ? top.get(0) : top.get(1);
+        assertEquals("1000000003", evicted.getAccountNumber());
+        assertEquals(2L, evicted.getError());
+    }
+
+    @Test
+    void mergeStripesFromManyThreads() throws InterruptedException {
+        //given
+        HotAccountSketch sketch = new HotAccountSketch(10, 4);
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        //when
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            executorService.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    sketch.add("1000000000");
+                }
+                sketch.add(String.valueOf(2000000000L + thread));
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executorService.shutdown();
+        List<HotAccountSketch.Entry> top = sketch.top(1);
+        //then
+        // 스레드마다 다른 stripe 에 세더라도 조회할 때 합쳐진다
+        assertEquals("1000000000", top.get(0).getAccountNumber());
+        assertEquals(8000L, top.get(0).getCount());
+        assertEquals(0L, top.get(0).getError());
+    }
+}
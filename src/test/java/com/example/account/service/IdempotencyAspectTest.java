@@ -0,0 +1,157 @@
+package com.example.account.service;
+
+import com.example.account.aop.Idempotent;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.exception.TransactionException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyAspectTest {
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    @Mock
+    private MethodSignature methodSignature;
+
+    @Mock
+    private Idempotent idempotent;
+
+    // 실제로 키를 저장하는 단일 인스턴스용 저장소
+    private final IdempotencyStore idempotencyStore =
+            spy(new LocalIdempotencyStore(new SimpleMeterRegistry(), 100, 60000));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IdempotencyAspect idempotencyAspect;
+
+    private final MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+
+    private final UseBalance.Request request = new UseBalance.Request(1L, "1000000000", 1000L);
+
+    @BeforeEach
+    void setUp() {
+        idempotencyAspect = new IdempotencyAspect(idempotencyStore, objectMapper, new SimpleMeterRegistry());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequest));
+        lenient().when(idempotent.name()).thenReturn("use");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void proceedWithoutIdempotencyKey() throws Throwable {
+        //given
+        given(proceedingJoinPoint.proceed()).willReturn(CompletableFuture.completedFuture("response"));
+        //when
+        Object result = idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+        //then
+        assertEquals("response", ((CompletableFuture<?>) result).join());
+        verify(idempotencyStore, never()).reserve(anyString(), anyString());
+    }
+
+    @Test
+    void replayStoredResponse() throws Throwable {
+        //given
+        servletRequest.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-1");
+        given(proceedingJoinPoint.proceed()).willReturn(CompletableFuture.completedFuture("response"));
+        given(proceedingJoinPoint.getSignature()).willReturn(methodSignature);
+        given(methodSignature.getReturnType()).willReturn(CompletableFuture.class);
+        ((CompletableFuture<?>) idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request)).join();
+        //when
+        Object result = idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+        //then
+        assertEquals("response", ((CompletableFuture<?>) result).join());
+        verify(proceedingJoinPoint, times(1)).proceed(); // 재요청은 락, DB 를 거치지 않는다
+    }
+
+    @Test
+    void replayStoredBusinessFailure() throws Throwable {
+        //given
+        servletRequest.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-1");
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new TransactionException(ErrorCode.TRANSACTION_NOT_FOUND));
+        assertThrows(TransactionException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request));
+        //when
+        TransactionException exception = assertThrows(TransactionException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request));
+        //then
+        assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void releaseKeyOnLockFailure() throws Throwable {
+        //given
+        servletRequest.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-1");
+        given(proceedingJoinPoint.proceed())
+                .willReturn(failedFuture(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK)))
+                .willReturn(CompletableFuture.completedFuture("response"));
+        CompletableFuture<?> first =
+                (CompletableFuture<?>) idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+        assertTrue(first.isCompletedExceptionally());
+        //when
+        Object result = idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+        //then
+        assertEquals("response", ((CompletableFuture<?>) result).join()); // 락 대기 초과는 다시 처리한다
+        verify(idempotencyStore).release("use:key-1");
+    }
+
+    @Test
+    void rejectWhileInProgress() throws Throwable {
+        //given
+        servletRequest.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-1");
+        given(proceedingJoinPoint.proceed()).willReturn(new CompletableFuture<>()); // 아직 처리 중
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request));
+        //then
+        assertEquals(ErrorCode.IDEMPOTENT_REQUEST_IN_PROGRESS, exception.getErrorCode());
+    }
+
+    @Test
+    void rejectKeyReusedWithDifferentRequest() throws Throwable {
+        //given
+        servletRequest.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "key-1");
+        given(proceedingJoinPoint.proceed()).willReturn(CompletableFuture.completedFuture("response"));
+        ((CompletableFuture<?>) idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request)).join();
+        UseBalance.Request otherRequest = new UseBalance.Request(1L, "1000000000", 2000L);
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, otherRequest));
+        //then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+        verify(idempotencyStore, never()).release(any());
+    }
+
+    private static CompletableFuture<Object> failedFuture(Throwable t) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+}
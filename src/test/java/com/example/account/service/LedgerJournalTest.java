@@ -0,0 +1,97 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverFromJournal() throws Exception {
+        //given
+        try (LedgerJournal journal = LedgerJournal.recover(directory, new LongLongHashMap(16), new HashMap<>())) {
+            journal.sync(journal.append(1L, 1000L));
+            journal.sync(journal.append(2L, 500L));
+            journal.sync(journal.append(1L, 900L));
+        }
+        //when
+        LongLongHashMap balances = new LongLongHashMap(16);
+        LedgerJournal.recover(directory, balances, new HashMap<>()).close();
+        //then
+        assertEquals(900L, balances.get(1L, 0L)); // 마지막 기록이 남는다
+        assertEquals(500L, balances.get(2L, 0L));
+    }
+
+    @Test
+    void recoverFromSnapshotAndJournal() throws Exception {
+        //given
+        try (LedgerJournal journal = LedgerJournal.recover(directory, new LongLongHashMap(16), new HashMap<>())) {
+            journal.append(1L, 1000L);
+            journal.append(2L, 500L);
+            LongLongHashMap snapshot = new LongLongHashMap(16);
+            snapshot.put(1L, 1000L);
+            snapshot.put(2L, 500L);
+            journal.writeSnapshot(snapshot, journal.rotate());
+            journal.sync(journal.append(2L, 400L));
+        }
+        //when
+        LongLongHashMap balances = new LongLongHashMap(16);
+        LedgerJournal.recover(directory, balances, new HashMap<>()).close();
+        //then
+        assertEquals(1000L, balances.get(1L, 0L));
+        assertEquals(400L, balances.get(2L, 0L));
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        assertFalse(Files.exists(directory.resolve("journal-1.log"))); // 스냅샷에 포함된 journal 은 지워진다
+    }
+
+    @Test
+    void returnPreparedWithoutResultAsInDoubt() throws Exception {
+        //given
+        try (LedgerJournal journal = LedgerJournal.recover(directory, new LongLongHashMap(16), new HashMap<>())) {
+            journal.appendPrepared(1L, 900L);
+            journal.append(1L, 900L); // 커밋됐다
+            journal.appendPrepared(2L, 400L);
+            journal.appendAborted(2L); // 롤백됐다
+            journal.sync(journal.appendPrepared(3L, 100L)); // 결과를 남기기 전에 죽었다
+        }
+        //when
+        LongLongHashMap balances = new LongLongHashMap(16);
+        Map<Long, Long> inDoubt = new HashMap<>();
+        LedgerJournal.recover(directory, balances, inDoubt).close();
+        //then
+        assertEquals(900L, balances.get(1L, 0L));
+        assertFalse(balances.containsKey(2L));
+        assertFalse(balances.containsKey(3L));
+        assertEquals(1, inDoubt.size());
+        assertEquals(100L, inDoubt.get(3L));
+    }
+
+    @Test
+    void ignoreTornRecord() throws Exception {
+        //given
+        try (LedgerJournal journal = LedgerJournal.recover(directory, new LongLongHashMap(16), new HashMap<>())) {
+            journal.sync(journal.append(1L, 1000L));
+        }
+        // 장애로 다음 기록이 절반만 쓰인 상황
+        Files.write(directory.resolve("journal-1.log"),
+                ByteBuffer.allocate(12).putLong(2L).putInt(1).array(), StandardOpenOption.APPEND);
+        //when
+        LongLongHashMap balances = new LongLongHashMap(16);
+        LedgerJournal journal = LedgerJournal.recover(directory, balances, new HashMap<>());
+        long seq = journal.append(1L, 800L);
+        journal.close();
+        //then
+        assertEquals(1000L, balances.get(1L, 0L));
+        assertEquals(2L, seq); // 덜 쓰인 기록의 seq 부터 다시 쓴다
+    }
+}
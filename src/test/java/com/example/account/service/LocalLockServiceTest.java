@@ -0,0 +1,69 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalLockServiceTest {
+    private final LocalLockService lockService = new LocalLockService(16);
+
+    @Test
+    void successGetLock() {
+        //given
+        //when
+        //then
+        assertDoesNotThrow(() -> lockService.lock("1234567890"));
+        lockService.unlock("1234567890");
+    }
+
+    @Test
+    void failedGetLock() throws ExecutionException, InterruptedException {
+        //given
+        lockService.lock("1234567890"); // 다른 스레드가 이미 잡고 있는 상황
+        //when
+        AccountException exception = CompletableFuture.supplyAsync(() ->
+                assertThrows(AccountException.class, () -> lockService.lock("1234567890"))
+        ).get();
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        lockService.unlock("1234567890");
+    }
+
+    @Test
+    void getLockAfterUnlock() throws ExecutionException, InterruptedException {
+        //given
+        lockService.lock("1234567890");
+        lockService.unlock("1234567890");
+        //when
+        //then
+        CompletableFuture.runAsync(() -> {
+            assertDoesNotThrow(() -> lockService.lock("1234567890"));
+            lockService.unlock("1234567890");
+        }).get();
+    }
+
+    @Test
+    void sameOrderKeyForSameStripe() throws ExecutionException, InterruptedException {
+        //given
+        String orderKey = lockService.getLockOrderKey("1234567890");
+        long other = 1234567891L;
+        while (!orderKey.equals(lockService.getLockOrderKey(String.valueOf(other)))) {
+            other++;
+        }
+        String sameStripe = String.valueOf(other);
+        lockService.lock("1234567890");
+        //when
+        AccountException exception = CompletableFuture.supplyAsync(() ->
+                assertThrows(AccountException.class, () -> lockService.lock(sameStripe, 10L, -1L))
+        ).get();
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode()); // 정렬 기준이 같으면 같은 락이다
+        assertEquals(10, orderKey.length()); // 자릿수를 맞춰서 문자열 순서가 stripe 순서다
+        lockService.unlock("1234567890");
+    }
+}
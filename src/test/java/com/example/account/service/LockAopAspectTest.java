@@ -1,27 +1,54 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
+import com.example.account.config.AccountLockProperties;
+import com.example.account.controller.TransactionController;
+import com.example.account.dto.CancleBalance;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class LockAopAspectTest {
-    @Mock
+    @Mock(answer = Answers.CALLS_REAL_METHODS) // 정렬 기준(getLockOrderKey)은 기본 구현을 쓴다
     private LockService lockService;
 
+    @Spy
+    private AccountLockProperties accountLockProperties = new AccountLockProperties();
+
+    @Mock
+    private LockMetrics lockMetrics;
+
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
 
@@ -36,9 +63,9 @@ class LockAopAspectTest {
         UseBalance.Request request =
                 new UseBalance.Request(123L, "12345", 1000L);
         //when
-        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint, getUseBalanceLock(), request);
         //then
-        verify(lockService, times(1)).lock(lockArgumentCaptor.capture()); // lockService.lock() 이 호출이 잘되는지 확인
+        verify(lockService, times(1)).lock(lockArgumentCaptor.capture(), anyLong(), anyLong()); // lockService.lock() 이 호출이 잘되는지 확인
         verify(lockService, times(1)).unlock(unlockArgumentCaptor.capture()); // lockService.unlock() 이 호출이 잘되는지 확인
         assertEquals("12345",lockArgumentCaptor.getValue());
         assertEquals("12345",unlockArgumentCaptor.getValue());
@@ -54,9 +81,209 @@ class LockAopAspectTest {
                 .willThrow(new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
         //when
         assertThrows(AccountException.class, //lockAopAspect에서 발생한 익셉션을 잡아줌
-                ()->lockAopAspect.aroundMethod(proceedingJoinPoint, request));
+                ()->lockAopAspect.aroundMethod(proceedingJoinPoint, getUseBalanceLock(), request));
         //then
         verify(lockService, times(1)).unlock(unlockArgumentCaptor.capture()); // lockService.unlock() 이 호출이 잘되는지 확인
         assertEquals("54322",unlockArgumentCaptor.getValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    void lockWithAnnotationPolicy() throws Throwable { // 설정이 없으면 어노테이션의 tryLockTime, leaseTime 을 쓴다
+        //given
+        AccountLock accountLock = getUseBalanceLock();
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "12345", 1000L);
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+        //then
+        verify(lockService, times(1))
+                .lock(eq("12345"), eq(accountLock.tryLockTime()), eq(accountLock.leaseTime()));
+    }
+
+    @Test
+    void lockWithPropertyPolicy() throws Throwable { // 엔드포인트별 설정이 어노테이션 값을 덮어쓴다
+        //given
+        AccountLockProperties.Policy policy = new AccountLockProperties.Policy();
+        policy.setWaitTime(300L);
+        policy.setLeaseTime(AccountLock.WATCHDOG);
+        accountLockProperties.setPolicies(Collections.singletonMap("cancle", policy));
+        AccountLock accountLock = TransactionController.class
+                .getMethod("cancleBalance", CancleBalance.Request.class)
+                .getAnnotation(AccountLock.class);
+        CancleBalance.Request request =
+                new CancleBalance.Request("transactionId", "12345", 1000L);
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+        //then
+        verify(lockService, times(1))
+                .lock(eq("12345"), eq(300L), eq(AccountLock.WATCHDOG));
+    }
+
+    private AccountLock getUseBalanceLock() throws NoSuchMethodException {
+        return TransactionController.class
+                .getMethod("useBalance", UseBalance.Request.class)
+                .getAnnotation(AccountLock.class);
+    }
+
+    @Test
+    void recordFailedLock() throws Throwable { // 락 획득에 실패하면 실패 지표를 남기고 원래 메서드는 실행하지 않는다
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "12345", 1000L);
+        willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockService).lock(anyString(), anyLong(), anyLong());
+        //when
+        assertThrows(AccountException.class,
+                () -> lockAopAspect.aroundMethod(proceedingJoinPoint, getUseBalanceLock(), request));
+        //then
+        verify(lockMetrics, times(1)).recordFailed(eq("use"), eq("12345"), anyLong());
+        verify(proceedingJoinPoint, never()).proceed();
+        verify(lockService, never()).unlock(anyString());
+    }
+
+    @Test
+    void lockBatchInAccountNumberOrder() throws Throwable { // 계좌마다 한 번씩, 계좌번호 순서로 잡고 역순으로 푼다
+        //given
+        AccountLock accountLock = TransactionController.class
+                .getMethod("useBalanceBatch", UseBalanceBatch.Request.class)
+                .getAnnotation(AccountLock.class);
+        UseBalanceBatch.Request request = new UseBalanceBatch.Request(Arrays.asList(
+                new UseBalance.Request(1L, "2000000000", 1000L),
+                new UseBalance.Request(1L, "1000000000", 1000L),
+                new UseBalance.Request(1L, "2000000000", 1000L)));
+        //when
+        lockAopAspect.aroundBatchMethod(proceedingJoinPoint, accountLock, request);
+        //then
+        InOrder inOrder = inOrder(lockService, proceedingJoinPoint);
+        inOrder.verify(lockService).lock(eq("1000000000"), anyLong(), anyLong());
+        inOrder.verify(lockService).lock(eq("2000000000"), anyLong(), anyLong());
+        inOrder.verify(proceedingJoinPoint).proceed();
+        inOrder.verify(lockService).unlock("2000000000");
+        inOrder.verify(lockService).unlock("1000000000");
+        verify(lockService, times(2)).lock(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void failBatchFastAndUnlockAcquired() throws Throwable { // 하나라도 못 잡으면 잡은 락을 풀고 바로 실패한다
+        //given
+        AccountLock accountLock = TransactionController.class
+                .getMethod("useBalanceBatch", UseBalanceBatch.Request.class)
+                .getAnnotation(AccountLock.class);
+        UseBalanceBatch.Request request = new UseBalanceBatch.Request(Arrays.asList(
+                new UseBalance.Request(1L, "1000000000", 1000L),
+                new UseBalance.Request(1L, "2000000000", 1000L),
+                new UseBalance.Request(1L, "3000000000", 1000L)));
+        willAnswer(invocation -> {
+            if ("2000000000".equals(invocation.getArgument(0))) {
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+            return null;
+        }).given(lockService).lock(anyString(), anyLong(), anyLong());
+        //when
+        assertThrows(AccountException.class,
+                () -> lockAopAspect.aroundBatchMethod(proceedingJoinPoint, accountLock, request));
+        //then
+        verify(lockService).lock(eq("1000000000"), anyLong(), eq(AccountLock.WATCHDOG)); // 잡는 동안 lease 가 끝나지 않도록
+        verify(lockService, never()).lock(eq("3000000000"), anyLong(), anyLong());
+        verify(lockService).unlock("1000000000");
+        verify(lockService, never()).unlock("2000000000");
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    void unlockAllEvenIfOneUnlockFails() throws Throwable { // lease 가 끝난 Redis 락을 풀면 예외가 난다
+        //given
+        AccountLock accountLock = TransactionController.class
+                .getMethod("useBalanceBatch", UseBalanceBatch.Request.class)
+                .getAnnotation(AccountLock.class);
+        UseBalanceBatch.Request request = new UseBalanceBatch.Request(Arrays.asList(
+                new UseBalance.Request(1L, "1000000000", 1000L),
+                new UseBalance.Request(1L, "2000000000", 1000L),
+                new UseBalance.Request(1L, "3000000000", 1000L)));
+        willAnswer(invocation -> {
+            if ("2000000000".equals(invocation.getArgument(0))) {
+                throw new IllegalMonitorStateException();
+            }
+            return null;
+        }).given(lockService).unlock(anyString());
+        given(proceedingJoinPoint.proceed()).willReturn("done");
+        //when
+        Object result = lockAopAspect.aroundBatchMethod(proceedingJoinPoint, accountLock, request);
+        //then
+        assertEquals("done", result);
+        verify(lockService).unlock("3000000000");
+        verify(lockService).unlock("1000000000");
+        verify(lockMetrics).recordHold(eq("use-batch"), anyLong());
+    }
+
+    @Test
+    void lockBatchInStripeOrder() throws Throwable { // local 모드에서는 계좌번호가 아니라 실제로 잡는 stripe 순서로 잡는다
+        //given
+        LocalLockService localLockService = spy(new LocalLockService(2));
+        LockAopAspect localLockAopAspect = new LockAopAspect(localLockService, accountLockProperties, lockMetrics);
+        String first = findAccountNumber(localLockService, 1, "1000000000");
+        String second = findAccountNumber(localLockService, 0, first); // 계좌번호는 크지만 stripe 는 앞선다
+        String sameStripe = findAccountNumber(localLockService, 1, second);
+        UseBalanceBatch.Request request = new UseBalanceBatch.Request(Arrays.asList(
+                new UseBalance.Request(1L, first, 1000L),
+                new UseBalance.Request(1L, second, 1000L),
+                new UseBalance.Request(1L, sameStripe, 1000L)));
+        //when
+        localLockAopAspect.aroundBatchMethod(proceedingJoinPoint, getUseBalanceBatchLock(), request);
+        //then
+        InOrder inOrder = inOrder(localLockService);
+        inOrder.verify(localLockService).lock(eq(second), anyLong(), anyLong());
+        inOrder.verify(localLockService).lock(eq(first), anyLong(), anyLong());
+        inOrder.verify(localLockService).unlock(first);
+        inOrder.verify(localLockService).unlock(second);
+        verify(localLockService, never()).lock(eq(sameStripe), anyLong(), anyLong()); // 같은 stripe 는 한 번만 잡는다
+    }
+
+    @Test
+    void noDeadlockWhenStripesCrossAccountOrder() throws Exception {
+        //given
+        LocalLockService localLockService = new LocalLockService(2);
+        LockAopAspect localLockAopAspect = new LockAopAspect(localLockService, accountLockProperties, lockMetrics);
+        AccountLock accountLock = getUseBalanceBatchLock();
+        // 계좌번호 순서로는 stripe 1 -> 0 과 stripe 0 -> 1 로 엇갈리는 두 요청
+        String a = findAccountNumber(localLockService, 1, "1000000000");
+        String b = findAccountNumber(localLockService, 0, a);
+        String c = findAccountNumber(localLockService, 0, "1000000000");
+        String d = findAccountNumber(localLockService, 1, c);
+        UseBalanceBatch.Request crossed = new UseBalanceBatch.Request(Arrays.asList(
+                new UseBalance.Request(1L, a, 1000L), new UseBalance.Request(1L, b, 1000L)));
+        UseBalanceBatch.Request straight = new UseBalanceBatch.Request(Arrays.asList(
+                new UseBalance.Request(1L, c, 1000L), new UseBalance.Request(1L, d, 1000L)));
+        //when
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> repeatBatch(localLockAopAspect, accountLock, crossed));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> repeatBatch(localLockAopAspect, accountLock, straight));
+        //then
+        CompletableFuture.allOf(first, second).get(30, TimeUnit.SECONDS); // 교착되면 ACCOUNT_TRANSACTION_LOCK 으로 실패한다
+    }
+
+    private void repeatBatch(LockAopAspect aspect, AccountLock accountLock, UseBalanceBatch.Request request) {
+        for (int i = 0; i < 500; i++) {
+            try {
+                aspect.aroundBatchMethod(proceedingJoinPoint, accountLock, request);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // after 보다 큰 계좌번호 중에 stripe 가 맞는 첫 번째 계좌번호
+    private static String findAccountNumber(LocalLockService localLockService, int stripe, String after) {
+        String orderKey = String.format("%010d", stripe);
+        for (long accountNumber = Long.parseLong(after) + 1; ; accountNumber++) {
+            if (orderKey.equals(localLockService.getLockOrderKey(String.valueOf(accountNumber)))) {
+                return String.valueOf(accountNumber);
+            }
+        }
+    }
+
+    private AccountLock getUseBalanceBatchLock() throws NoSuchMethodException {
+        return TransactionController.class
+                .getMethod("useBalanceBatch", UseBalanceBatch.Request.class)
+                .getAnnotation(AccountLock.class);
+    }
+}
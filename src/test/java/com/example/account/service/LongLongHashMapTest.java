@@ -0,0 +1,68 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTest {
+    @Test
+    void putAndGet() {
+        //given
+        LongLongHashMap map = new LongLongHashMap(4);
+        //when
+        map.put(1L, 1000L);
+        map.put(2L, -5L);
+        map.put(1L, 900L); // 같은 키는 덮어쓴다
+        //then
+        assertEquals(900L, map.get(1L, 0L));
+        assertEquals(-5L, map.get(2L, 0L));
+        assertEquals(-1L, map.get(3L, -1L));
+        assertTrue(map.containsKey(2L));
+        assertFalse(map.containsKey(3L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void keepEntriesAfterResize() {
+        //given
+        LongLongHashMap map = new LongLongHashMap(4);
+        //when
+        for (long id = 1; id <= 100_000; id++) {
+            map.put(id, id * 10);
+        }
+        //then
+        assertEquals(100_000, map.size());
+        for (long id = 1; id <= 100_000; id++) {
+            assertEquals(id * 10, map.get(id, 0L));
+        }
+    }
+
+    @Test
+    void forEachAndCopy() {
+        //given
+        LongLongHashMap map = new LongLongHashMap(16);
+        map.put(10L, 100L);
+        map.put(20L, 200L);
+        //when
+        LongLongHashMap copy = map.copy();
+        map.put(30L, 300L);
+        Map<Long, Long> entries = new HashMap<>();
+        copy.forEach(entries::put);
+        //then
+        assertEquals(2, entries.size()); // 복사본은 원본의 이후 변경을 보지 않는다
+        assertEquals(100L, entries.get(10L));
+        assertEquals(200L, entries.get(20L));
+    }
+
+    @Test
+    void rejectZeroKey() {
+        //given
+        LongLongHashMap map = new LongLongHashMap(16);
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, 1L));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.repository.OutboxEventRepository;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBatch;
+import org.redisson.api.RLock;
+import org.redisson.api.RStreamAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.client.codec.Codec;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private RLock lock;
+
+    @Mock
+    private RBatch batch;
+
+    @Mock
+    private RStreamAsync<Object, Object> stream;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        // 스케줄러 없이 relay() 를 직접 호출한다
+        outboxRelay = new OutboxRelay(outboxEventRepository, redissonClient, transactionManager,
+                new SimpleMeterRegistry(), false, 200L, 2, 1000, 60000L);
+        given(redissonClient.getLock(anyString())).willReturn(lock);
+    }
+
+    @Test
+    void publishPendingEventsWithNextSequence() {
+        //given
+        OutboxEvent first = outboxEvent(1L, USE);
+        OutboxEvent second = outboxEvent(2L, CANCEL);
+        given(lock.tryLock()).willReturn(true);
+        given(outboxEventRepository.findBySequenceIsNullOrderByTransactedAtAscIdAsc(any()))
+                .willReturn(Arrays.asList(first, second))
+                .willReturn(Collections.emptyList());
+        given(outboxEventRepository.findMaxSequence()).willReturn(7L);
+        given(redissonClient.createBatch()).willReturn(batch);
+        doReturn(stream).when(batch).getStream(anyString(), any(Codec.class));
+        //when
+        outboxRelay.relay();
+        //then
+        assertEquals(8L, first.getSequence()); // 마지막으로 발행한 sequence 에 이어서
+        assertEquals(9L, second.getSequence());
+        assertNotNull(first.getPublishedAt());
+        verify(stream, times(2)).addAsync(any(StreamAddArgs.class));
+        verify(batch).execute(); // 한 번에 보낸다
+        verify(outboxEventRepository, times(2)).findBySequenceIsNullOrderByTransactedAtAscIdAsc(any()); // batch-size 만큼 찼으니 한 번 더 읽는다
+        verify(lock).unlock();
+    }
+
+    @Test
+    void skipWhenOtherInstanceRelays() {
+        //given
+        given(lock.tryLock()).willReturn(false);
+        //when
+        outboxRelay.relay();
+        //then
+        verify(outboxEventRepository, never()).findBySequenceIsNullOrderByTransactedAtAscIdAsc(any());
+        verify(lock, never()).unlock();
+    }
+
+    @Test
+    void releaseLockWhenPublishFails() {
+        //given
+        given(lock.tryLock()).willReturn(true);
+        given(outboxEventRepository.findBySequenceIsNullOrderByTransactedAtAscIdAsc(any()))
+                .willReturn(Collections.singletonList(outboxEvent(1L, USE)));
+        given(redissonClient.createBatch()).willReturn(batch);
+        doReturn(stream).when(batch).getStream(anyString(), any(Codec.class));
+        given(batch.execute()).willThrow(new IllegalStateException("redis down"));
+        //when
+        outboxRelay.relay();
+        //then
+        verify(transactionManager).rollback(any()); // sequence 는 커밋되지 않는다
+        verify(lock).unlock();
+    }
+
+    private OutboxEvent outboxEvent(Long id, TransactionType transactionType) {
+        return OutboxEvent.builder()
+                .id(id)
+                .accountNumber("1000000000")
+                .transactionType(transactionType)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactionId("tx" + id)
+                .transactedAt(LocalDateTime.of(2022, 6, 1, 10, 0))
+                .build();
+    }
+}
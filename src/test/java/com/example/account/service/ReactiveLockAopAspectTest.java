@@ -0,0 +1,153 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.config.AccountLockProperties;
+import com.example.account.controller.TransactionController;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveLockAopAspectTest {
+    private static final long OWNER_ID = -1L;
+
+    @Mock
+    private AsyncLockService asyncLockService;
+
+    @Mock
+    private LockMetrics lockMetrics;
+
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    private final TransactionExecutor transactionExecutor =
+            new TransactionExecutor(new SimpleMeterRegistry(), false, 2, 10);
+
+    private ReactiveLockAopAspect reactiveLockAopAspect;
+
+    @BeforeEach
+    void setUp() {
+        reactiveLockAopAspect = new ReactiveLockAopAspect(asyncLockService,
+                new AccountLockProperties(), lockMetrics, transactionExecutor);
+        given(asyncLockService.newOwnerId()).willReturn(OWNER_ID);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transactionExecutor.destroy();
+    }
+
+    @Test
+    void lockProceedAndUnlock() throws Throwable {
+        //given
+        given(asyncLockService.lock(anyString(), anyLong(), anyLong(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(asyncLockService.unlock(anyString(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(proceedingJoinPoint.proceed())
+                .willReturn(CompletableFuture.completedFuture("success"));
+        //when
+        Object result = reactiveLockAopAspect.aroundMethod(proceedingJoinPoint,
+                getLock("useBalance", UseBalance.Request.class),
+                new UseBalance.Request(123L, "12345", 1000L));
+        //then
+        assertEquals("success", ((CompletableFuture<?>) result).get(1, TimeUnit.SECONDS));
+        verify(asyncLockService).lock(eq("12345"), eq(OWNER_ID), anyLong(), anyLong());
+        verify(asyncLockService, timeout(1000)).unlock("12345", OWNER_ID);
+    }
+
+    @Test
+    void notProceedIfLockFailed() throws Throwable {
+        //given
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+        given(asyncLockService.lock(anyString(), anyLong(), anyLong(), anyLong()))
+                .willReturn(failed);
+        //when
+        Object result = reactiveLockAopAspect.aroundMethod(proceedingJoinPoint,
+                getLock("useBalance", UseBalance.Request.class),
+                new UseBalance.Request(123L, "12345", 1000L));
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> ((CompletableFuture<?>) result).get(1, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof AccountException);
+        verify(proceedingJoinPoint, never()).proceed();
+        verify(asyncLockService, never()).unlock(anyString(), anyLong()); // 잡지 못한 락은 풀지 않는다
+    }
+
+    @Test
+    void unlockEvenIfThrow() throws Throwable {
+        //given
+        given(asyncLockService.lock(anyString(), anyLong(), anyLong(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(asyncLockService.unlock(anyString(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+        //when
+        Object result = reactiveLockAopAspect.aroundMethod(proceedingJoinPoint,
+                getLock("useBalance", UseBalance.Request.class),
+                new UseBalance.Request(123L, "12345", 1000L));
+        //then
+        assertThrows(ExecutionException.class,
+                () -> ((CompletableFuture<?>) result).get(1, TimeUnit.SECONDS));
+        verify(asyncLockService, timeout(1000)).unlock("12345", OWNER_ID);
+    }
+
+    @Test
+    void lockBatchInAccountNumberOrder() throws Throwable {
+        //given
+        given(asyncLockService.lock(anyString(), anyLong(), anyLong(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(asyncLockService.unlock(anyString(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(proceedingJoinPoint.proceed())
+                .willReturn(CompletableFuture.completedFuture("success"));
+        UseBalanceBatch.Request request = new UseBalanceBatch.Request(Arrays.asList(
+                new UseBalance.Request(1L, "2000000000", 100L),
+                new UseBalance.Request(1L, "1000000000", 100L)));
+        //when
+        Object result = reactiveLockAopAspect.aroundBatchMethod(proceedingJoinPoint,
+                getLock("useBalanceBatch", UseBalanceBatch.Request.class), request);
+        ((CompletableFuture<?>) result).get(1, TimeUnit.SECONDS);
+        //then
+        verify(asyncLockService, timeout(1000)).unlock("1000000000", OWNER_ID);
+        InOrder inOrder = inOrder(asyncLockService);
+        inOrder.verify(asyncLockService).lock(eq("1000000000"), eq(OWNER_ID), anyLong(), anyLong());
+        inOrder.verify(asyncLockService).lock(eq("2000000000"), eq(OWNER_ID), anyLong(), anyLong());
+        inOrder.verify(asyncLockService).unlock("2000000000", OWNER_ID);
+        inOrder.verify(asyncLockService).unlock("1000000000", OWNER_ID);
+    }
+
+    private AccountLock getLock(String methodName, Class<?> requestType) throws NoSuchMethodException {
+        return TransactionController.class.getMethod(methodName, requestType)
+                .getAnnotation(AccountLock.class);
+    }
+}
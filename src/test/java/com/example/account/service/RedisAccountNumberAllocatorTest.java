@@ -0,0 +1,137 @@
+package com.example.account.service;
+
+import com.example.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RedisAccountNumberAllocatorTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RAtomicLong counter;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private final AtomicLong redisCounter = new AtomicLong(); // 실제 Redis 카운터처럼 동작하도록
+
+    @BeforeEach
+    void setUp() {
+        given(redissonClient.getAtomicLong(anyString())).willReturn(counter);
+        lenient().when(counter.get()).thenAnswer(invocation -> redisCounter.get());
+        lenient().when(counter.addAndGet(anyLong()))
+                .thenAnswer(invocation -> redisCounter.addAndGet(invocation.getArgument(0)));
+        lenient().when(counter.compareAndSet(anyLong(), anyLong()))
+                .thenAnswer(invocation -> redisCounter.compareAndSet(
+                        invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    @Test
+    @DisplayName("기존에 생성된 계좌 없음 - 첫 계좌번호 발급")
+    void allocateFirstAccountNumber() {
+        //given
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.empty());
+        RedisAccountNumberAllocator allocator =
+                new RedisAccountNumberAllocator(redissonClient, accountRepository, 10);
+        //when
+        //then
+        assertEquals("1000000000", allocator.allocate());
+        assertEquals("1000000001", allocator.allocate());
+    }
+
+    @Test
+    @DisplayName("기존 계좌가 있음 - 마지막 계좌번호 다음부터 발급")
+    void allocateAfterExistingAccount() {
+        //given
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.of("1000000012"));
+        RedisAccountNumberAllocator allocator =
+                new RedisAccountNumberAllocator(redissonClient, accountRepository, 10);
+        //when
+        //then
+        assertEquals("1000000013", allocator.allocate());
+    }
+
+    @Test
+    @DisplayName("대량 발급 - 연속된 번호를 Redis 호출 한 번으로 예약, 이미 받아둔 구간과 겹치지 않음")
+    void allocateContiguousAccountNumbers() {
+        //given
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.empty());
+        RedisAccountNumberAllocator allocator =
+                new RedisAccountNumberAllocator(redissonClient, accountRepository, 10);
+        //when
+        String single = allocator.allocate(); // [0, 10) 구간을 받아온다
+        List<String> bulk = allocator.allocate(3);
+        //then
+        assertEquals("1000000000", single);
+        assertEquals(Arrays.asList("1000000010", "1000000011", "1000000012"), bulk);
+        assertEquals("1000000001", allocator.allocate()); // 받아둔 구간은 그대로 이어서 쓴다
+        verify(counter, times(2)).addAndGet(anyLong());
+    }
+
+    @Test
+    @DisplayName("64개 스레드가 동시에 발급해도 중복 번호 없음")
+    void noDuplicateAccountNumberUnderConcurrency() throws InterruptedException {
+        //given
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.empty());
+        RedisAccountNumberAllocator allocator =
+                new RedisAccountNumberAllocator(redissonClient, accountRepository, 7);
+        int threads = 64;
+        int perThread = 1000;
+        Set<String> accountNumbers = ConcurrentHashMap.newKeySet();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        //when
+        for (int i = 0; i < threads; i++) {
+            executorService.submit(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < perThread; j++) {
+                        accountNumbers.add(allocator.allocate());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executorService.shutdown();
+        //then
+        assertEquals(threads * perThread, accountNumbers.size()); // Set 이므로 중복이 있었다면 크기가 줄어든다
+    }
+}
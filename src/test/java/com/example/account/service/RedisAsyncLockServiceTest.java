@@ -0,0 +1,68 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class RedisAsyncLockServiceTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RLock rLock;
+
+    @Mock
+    private RFuture<Boolean> tryLockFuture; // Redisson 이 돌려주는 future 도 mocking 해서 결과를 정해준다
+
+    @InjectMocks
+    private RedisAsyncLockService lockService;
+
+    @Test
+    void successGetLock() {
+        //given
+        given(redissonClient.getLock(anyString())).willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong())).willReturn(tryLockFuture);
+        given(tryLockFuture.toCompletableFuture()).willReturn(CompletableFuture.completedFuture(true));
+        //when
+        //then
+        assertDoesNotThrow(() -> lockService.lock("123", lockService.newOwnerId(), 1000L, -1L).get());
+    }
+
+    @Test
+    void failedGetLock() {
+        //given
+        given(redissonClient.getLock(anyString())).willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong())).willReturn(tryLockFuture);
+        given(tryLockFuture.toCompletableFuture()).willReturn(CompletableFuture.completedFuture(false));
+        //when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> lockService.lock("123", lockService.newOwnerId(), 1000L, -1L).get());
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+    }
+
+    @Test
+    void ownerIdNotCollideWithThreadId() {
+        //given
+        //when
+        long ownerId = lockService.newOwnerId();
+        //then
+        assertTrue(ownerId < 0); // 스레드 id 는 항상 양수
+    }
+}
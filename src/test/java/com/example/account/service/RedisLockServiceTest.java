@@ -15,7 +15,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
 
 @ExtendWith(MockitoExtension.class)
-class LockServiceTest {
+class RedisLockServiceTest {
     @Mock
     private RedissonClient redissonClient;
 
@@ -23,7 +23,7 @@ class LockServiceTest {
     private RLock rLock; // 우리가 만든 bean은 아니지만 RLock의 동작에 따라 로직이 변화하기 때문에 mocking해서 동작을 우리가 원하는대로 바꿔주자
 
     @InjectMocks
-    private LockService lockService;
+    private RedisLockService lockService;
 
     @Test
     void successGetLock() throws InterruptedException {
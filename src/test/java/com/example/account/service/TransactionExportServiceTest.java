@@ -0,0 +1,171 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceTest {
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionExportService transactionExportService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transactionExportService = new TransactionExportService(
+                transactionRepository, accountRepository, objectMapper, transactionManager);
+    }
+
+    @Test
+    void exportAsNdjson() throws Exception {
+        //given
+        given(transactionRepository.findExportPageByAccount(eq("1000000012"), any(), anyLong(), any(), any()))
+                .willReturn(Arrays.asList(transaction(1L, "first"), transaction(2L, "second")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        //when
+        transactionExportService.export("1000000012", null, null, ExportFormat.NDJSON, outputStream);
+        //then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(2, lines.length); // 한 줄에 거래 하나
+        assertTrue(lines[0].contains("\"transactionId\":\"first\""));
+        assertTrue(lines[1].contains("\"transactedAt\":\"2022-06-01T10:00:00\""));
+    }
+
+    @Test
+    void exportAsCsv() throws Exception {
+        //given
+        LocalDateTime from = LocalDateTime.of(2022, 6, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2022, 6, 2, 0, 0);
+        given(transactionRepository.findExportPage(eq(from), eq(0L), eq(to), any()))
+                .willReturn(Arrays.asList(transaction(1L, "first")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        //when
+        transactionExportService.export(null, from, to, ExportFormat.CSV, outputStream);
+        //then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals("accountNumber,transactionType,transactionResult,amount,balanceSnapshot,transactionId,transactedAt",
+                lines[0]);
+        assertEquals("1000000012,USE,S,1000,9000,first,2022-06-01T10:00", lines[1]);
+    }
+
+    @Test
+    void exportNextPageAfterLastRow() throws Exception {
+        //given
+        LocalDateTime from = LocalDateTime.of(2022, 6, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2022, 6, 2, 0, 0);
+        given(transactionRepository.findExportPage(eq(from), eq(0L), eq(to), any()))
+                .willReturn(LongStream.rangeClosed(1L, 1000L)
+                        .mapToObj(id -> transaction(id, "tx" + id))
+                        .collect(Collectors.toList()));
+        // 두 번째 페이지는 첫 페이지의 마지막 (transactedAt, id) 뒤부터 읽는다
+        given(transactionRepository.findExportPage(eq(LocalDateTime.of(2022, 6, 1, 10, 0)), eq(1000L), eq(to), any()))
+                .willReturn(Arrays.asList(transaction(1001L, "tx1001")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        //when
+        transactionExportService.export(null, from, to, ExportFormat.NDJSON, outputStream);
+        //then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(1001, lines.length);
+        assertTrue(lines[1000].contains("\"transactionId\":\"tx1001\""));
+    }
+
+    @Test
+    void validateExport_AccountNotFound() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString())).willReturn(Optional.empty());
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionExportService.validateExport("1000000012", null, null));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    void validateExport_InvalidRange() {
+        //given
+        LocalDateTime now = LocalDateTime.now();
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionExportService.validateExport(null, now, now.minusDays(1)));
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    @Test
+    void validateExport_NoAccountNorRange() { // 전체 테이블을 내보내지 않는다
+        //given
+        LocalDateTime now = LocalDateTime.now();
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionExportService.validateExport(null, now.minusDays(1), null));
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+    }
+
+    @Test
+    void validateExport_Success() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder().accountNumber("1000000012").build()));
+        //when
+        //then
+        assertDoesNotThrow(() -> transactionExportService.validateExport(
+                "1000000012", LocalDateTime.now().minusDays(1), LocalDateTime.now()));
+    }
+
+    private Transaction transaction(Long id, String transactionId) {
+        return Transaction.builder()
+                .id(id)
+                .account(Account.builder().accountNumber("1000000012").build())
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.of(2022, 6, 1, 10, 0))
+                .build();
+    }
+}
@@ -3,7 +3,11 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountMetadata;
+import com.example.account.dto.FailedTransaction;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.exception.TransactionException;
 import com.example.account.repository.AccountRepository;
@@ -11,6 +15,7 @@ import com.example.account.repository.AccountUserRepository;
 import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,18 +23,37 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.CANCEL;
 import static com.example.account.type.TransactionType.USE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -44,6 +68,24 @@ class TransactionServiceTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Mock
+    private TransactionQueryCache transactionQueryCache;
+
+    @Mock
+    private BalanceCommandEngine balanceCommandEngine;
+
+    @Mock
+    private BalanceLedger balanceLedger;
+
+    @Mock
+    private TransactionOutbox transactionOutbox;
+
+    @Mock
+    private AccountMetadataCache accountMetadataCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -90,6 +132,76 @@ class TransactionServiceTest {
         assertEquals(10000L, captor.getValue().getAmount()); // 실제로 서비스에서 저장되는 시점의 값이 들어감
     }
 
+    @Test
+    void useBalanceWithCachedOwner() {
+        //given
+        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber("1234567890")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(200000L)
+                .build();
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(AccountMetadata.fromEntity(account)));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        //when
+        TransactionDto transactionDto = transactionService.useBalance(12L, "1234567890", 10000L);
+        //then
+        assertEquals(190000L, transactionDto.getBalanceSnapshot());
+        verify(accountUserRepository, never()).findById(anyLong()); // 소유주는 캐시로 확인
+        verify(accountMetadataCache, never()).put(any());
+    }
+
+    @Test
+    void failedUseBalance_CachedUnregistered() {
+        //given
+        given(accountMetadataCache.get(anyString()))
+                .willReturn(Optional.of(AccountMetadata.builder()
+                        .accountNumber("1234567890")
+                        .ownerId(12L)
+                        .accountStatus(AccountStatus.UNREGISTERED)
+                        .build()));
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(12L, "1234567890", 10000L));
+        //then
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_UNREGISTERED, exception.getErrorCode());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+    }
+
+    @Test
+    void appendOutboxEventOnlyForSuccess() {
+        //given
+        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber("1234567890")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(200000L)
+                .build();
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findByAccountNumberIn(any()))
+                .willReturn(Collections.singletonList(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        //when
+        transactionService.useBalance(12L, "1234567890", 10000L);
+        transactionService.saveFailedTransactions(Collections.singletonList(
+                new FailedTransaction(USE, "1234567890", 10000L, LocalDateTime.now())));
+        //then
+        verify(transactionOutbox, times(1)).append(captor.capture()); // 실패 거래는 잔액이 바뀌지 않으므로 이벤트가 없다
+        assertEquals(S, captor.getValue().getTransactionResultType());
+        assertEquals(190000L, captor.getValue().getBalanceSnapshot());
+    }
+
     @Test
     @DisplayName("해당 유저 없음 - 잔액 사용 실패")
     void failedUseBalance_UserNotFound() {
@@ -204,55 +316,29 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("사용 실패 트랜잭션 저장 성공")
-    void successSaveFailedUseTransaction() {
+    void saveFailedTransactionsSkipUnknownAccount() {
         //given
-        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
         Account account = Account.builder()
-                .accountUser(user)
-                .accountNumber("1234567890")
-                .accountStatus(AccountStatus.IN_USE)
-                .balance(200000L)
+                .accountNumber("1000000000")
+                .balance(5000L)
                 .build();
-
-        given(accountRepository.findByAccountNumber(anyString()))
-                .willReturn(Optional.of(account));
-
-        given(transactionRepository.save(any()))
-                .willReturn(
-                        Transaction.builder()
-                                .transactionType(USE)
-                                .transactionResultType(S)
-                                .account(account)
-                                .amount(2000L)
-                                .balanceSnapshot(18000L)
-                                .transactionId("abcdefghikl")
-                                .transactedAt(LocalDateTime.now())
-                                .build()
-                );
-
-        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        given(accountRepository.findByAccountNumberIn(anyCollection()))
+                .willReturn(Collections.singletonList(account));
+        LocalDateTime failedAt = LocalDateTime.of(2022, 6, 1, 10, 0);
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
         //when
-        transactionService.saveFailedUseTransaction("1000000000", 10000L);
+        int saved = transactionService.saveFailedTransactions(Arrays.asList(
+                new FailedTransaction(USE, "1000000000", 10000L, failedAt),
+                new FailedTransaction(CANCEL, "9999999999", 1000L, failedAt)));
         //then
-        verify(transactionRepository, times(1)).save(captor.capture()); //captor야 캡쳐해
-        assertEquals(F, captor.getValue().getTransactionResultType());
-        assertEquals(USE, captor.getValue().getTransactionType());
-        assertEquals(200000L, captor.getValue().getBalanceSnapshot()); //account 엔티티에 들어있던 값에서 amount를 뺀 만큼 나머지 잔액이 잘 들어 있는지
-        assertEquals(10000L, captor.getValue().getAmount()); // 실제로 서비스에서 저장되는 시점의 값이 들어감
-    }
-
-    @Test
-    @DisplayName("사용 실패 트랜잭션 저장 성공")
-    void failedSaveFailedUseTransaction_accountNotFound() {
-        //given
-        given(accountRepository.findByAccountNumber(anyString()))
-                .willReturn(Optional.empty());
-        //when
-        AccountException exception = assertThrows(AccountException.class,
-                () -> transactionService.saveFailedUseTransaction("1000000000", 10000L));
-        //then
-        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND,exception.getErrorCode());
+        assertEquals(1, saved); // 없는 계좌의 실패는 예외 없이 건너뛴다
+        verify(transactionRepository).saveAll(captor.capture());
+        Transaction transaction = captor.getValue().get(0);
+        assertEquals(1, captor.getValue().size());
+        assertEquals(F, transaction.getTransactionResultType());
+        assertEquals(USE, transaction.getTransactionType());
+        assertEquals(5000L, transaction.getBalanceSnapshot());
+        assertEquals(failedAt, transaction.getTransactedAt()); // 저장한 시각이 아니라 실패한 시각
     }
 
     @Test
@@ -472,101 +558,361 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("취소 실패 트랜잭션 저장 성공")
-    void successSaveFailedCancleTransaction() {
+    void successQueryTransaction() {
+        //given
+        //과거에 썼던 내역
+        given(transactionRepository.findDtoByTransactionId(anyString()))
+                .willReturn(Optional.of(
+                        TransactionDto.builder()
+                                .accountNumber("123456778")
+                                .transactionType(USE)
+                                .transactionResultType(S)
+                                .amount(15000L)
+                                .balanceSnapshot(18000L)
+                                .transactionId("usedtransaction")
+                                .transactedAt(LocalDateTime.now().minusYears(1).minusDays(1))
+                                .build()
+                ));
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction("abcd");
+        //then
+        assertEquals(USE, transactionDto.getTransactionType());
+        assertEquals(S, transactionDto.getTransactionResultType());
+        assertEquals("123456778", transactionDto.getAccountNumber());
+        assertEquals("usedtransaction", transactionDto.getTransactionId());
+        assertEquals(18000L, transactionDto.getBalanceSnapshot());
+        verify(transactionQueryCache, times(1)).put(transactionDto); // 조회한 결과는 캐시에 채워둔다
+    }
+
+    @Test
+    @DisplayName("캐시에 있는 거래 - DB 조회 없이 거래 조회 성공")
+    void successQueryTransaction_cached() {
+        //given
+        given(transactionQueryCache.get(anyString()))
+                .willReturn(Optional.of(TransactionDto.builder()
+                        .accountNumber("123456778")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("cachedtransaction")
+                        .build()));
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction("cachedtransaction");
+        //then
+        verify(transactionRepository, times(0)).findDtoByTransactionId(anyString());
+        assertEquals("cachedtransaction", transactionDto.getTransactionId());
+        assertEquals("123456778", transactionDto.getAccountNumber());
+    }
+
+    @Test
+    @DisplayName("원 사용 거래 없음 - 거래 조회 실패")
+    void failedQueryTransaction_TransactionNotFound() {
+        //given
+        given(transactionRepository.findDtoByTransactionId(anyString()))
+                .willReturn(Optional.empty());
+        //when
+        TransactionException exception = assertThrows(TransactionException.class,
+                ()->transactionService.queryTransaction("abcd"));
+        //then
+        assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
+    }
+
+
+    @Test
+    @DisplayName("일괄 잔액 사용 - 건별로 성공/실패 결과")
+    void successUseBalanceBatch() {
         //given
         AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
         Account account = Account.builder()
                 .accountUser(user)
-                .accountNumber("1234567890")
+                .accountNumber("1000000000")
                 .accountStatus(AccountStatus.IN_USE)
-                .balance(200000L)
+                .balance(10000L)
+                .build();
+        given(accountUserRepository.findAllById(any()))
+                .willReturn(Collections.singletonList(user));
+        given(accountRepository.findByAccountNumberIn(any()))
+                .willReturn(Collections.singletonList(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        //when
+        List<TransactionDto> transactionDtos = transactionService.useBalanceBatch(Arrays.asList(
+                new UseBalance.Request(12L, "1000000000", 3000L),
+                new UseBalance.Request(12L, "1000000000", 8000L), // 앞선 사용 후 잔액 7000 보다 큼
+                new UseBalance.Request(12L, "1000000000", 7000L),
+                new UseBalance.Request(12L, "9999999999", 1000L) // 없는 계좌
+        ));
+        //then
+        verify(transactionRepository, times(1)).saveAll(captor.capture()); // insert 는 한 번에 모아서
+        assertEquals(3, captor.getValue().size());
+        assertEquals(4, transactionDtos.size());
+        assertEquals(S, transactionDtos.get(0).getTransactionResultType());
+        assertEquals(7000L, transactionDtos.get(0).getBalanceSnapshot());
+        assertEquals(F, transactionDtos.get(1).getTransactionResultType());
+        assertEquals(S, transactionDtos.get(2).getTransactionResultType());
+        assertEquals(0L, transactionDtos.get(2).getBalanceSnapshot());
+        assertEquals(F, transactionDtos.get(3).getTransactionResultType());
+        assertEquals("9999999999", transactionDtos.get(3).getAccountNumber());
+        assertEquals(0L, account.getBalance());
+    }
+
+    @Test
+    void useBalanceOnSingleWriter() {
+        //given
+        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber("1000000012")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .build();
+        BalanceCommandEngine.Batch batch = mock(BalanceCommandEngine.Batch.class);
+        given(balanceCommandEngine.isEnabled()).willReturn(true);
+        given(balanceCommandEngine.execute(eq("1000000012"), any()))
+                .willAnswer(invocation -> invocation.<BalanceCommandEngine.BalanceCommand<?>>getArgument(1)
+                        .apply(batch)); // worker 스레드 대신 바로 실행
+        given(batch.getAccount("1000000012")).willReturn(account);
+        given(accountUserRepository.findById(12L)).willReturn(Optional.of(user));
+        given(transactionRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+        //when
+        TransactionDto transactionDto = transactionService.useBalance(12L, "1000000012", 1000L);
+        //then
+        assertEquals(9000L, transactionDto.getBalanceSnapshot());
+        assertEquals(S, transactionDto.getTransactionResultType());
+        verify(accountRepository, never()).findByAccountNumber(anyString()); // 계좌는 배치에서 읽는다
+    }
+
+    @Test
+    @DisplayName("일괄 잔액 사용 - single-writer 모드에서는 건마다 계좌의 worker 에서 처리")
+    void useBalanceBatchOnSingleWriter() {
+        //given
+        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber("1000000012")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .build();
+        BalanceCommandEngine.Batch batch = mock(BalanceCommandEngine.Batch.class);
+        given(balanceCommandEngine.isSingleWriter()).willReturn(true);
+        given(balanceCommandEngine.submit(anyString(), any()))
+                .willAnswer(invocation -> CompletableFuture.completedFuture(
+                        invocation.<BalanceCommandEngine.BalanceCommand<?>>getArgument(1).apply(batch)));
+        given(batch.getAccount("1000000012")).willReturn(account);
+        given(batch.getAccount("9999999999")).willThrow(new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        given(accountUserRepository.findById(12L)).willReturn(Optional.of(user));
+        given(transactionRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+        //when
+        List<TransactionDto> transactionDtos = transactionService.useBalanceBatch(Arrays.asList(
+                new UseBalance.Request(12L, "1000000012", 3000L),
+                new UseBalance.Request(12L, "1000000012", 8000L),
+                new UseBalance.Request(12L, "9999999999", 1000L)
+        ));
+        //then
+        verify(accountUserRepository, never()).findAllById(any()); // 계좌 락이 없으므로 worker 밖에서는 읽지 않는다
+        verify(transactionRepository, never()).saveAll(any());
+        assertEquals(S, transactionDtos.get(0).getTransactionResultType());
+        assertEquals(7000L, transactionDtos.get(0).getBalanceSnapshot());
+        assertEquals(F, transactionDtos.get(1).getTransactionResultType());
+        assertEquals(F, transactionDtos.get(2).getTransactionResultType());
+        assertEquals(7000L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("group commit 모드에서 커넥션 풀보다 많은 요청이 동시에 기다려도 worker 가 커밋한다")
+    void groupCommitWithMoreCallersThanConnections() throws Exception {
+        //given
+        int poolSize = 2;
+        int callers = 20;
+        Semaphore connections = new Semaphore(poolSize); // 트랜잭션마다 커넥션 하나를 잡는 풀
+        given(transactionManager.getTransaction(any())).willAnswer(invocation -> {
+            if (!connections.tryAcquire(1, TimeUnit.SECONDS)) {
+                throw new CannotCreateTransactionException("Connection is not available");
+            }
+            return new SimpleTransactionStatus();
+        });
+        willAnswer(invocation -> {
+            connections.release();
+            return null;
+        }).given(transactionManager).commit(any());
+        AccountUser user = AccountUser.builder().id(12L).name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber("1000000012")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(callers * 1000L)
                 .build();
+        given(accountUserRepository.findById(12L)).willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber("1000000012")).willReturn(Optional.of(account));
+        given(transactionRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+        BalanceCommandEngine groupCommitEngine = new BalanceCommandEngine(transactionManager, accountRepository,
+                new SimpleMeterRegistry(), "lock", "group", 2, 1000, 256, 2000, 10000);
+        TransactionService groupCommitService = new TransactionService(transactionRepository,
+                accountUserRepository, accountRepository, transactionQueryCache, groupCommitEngine,
+                balanceLedger, transactionOutbox, accountMetadataCache, transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        //when
+        List<Future<TransactionDto>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return groupCommitService.useBalance(12L, "1000000012", 1000L);
+                }));
+            }
+            start.countDown();
+            //then
+            for (Future<TransactionDto> result : results) {
+                assertEquals(S, result.get(10, TimeUnit.SECONDS).getTransactionResultType());
+            }
+        } finally {
+            executor.shutdownNow();
+            groupCommitEngine.destroy();
+        }
+        assertEquals(0L, account.getBalance());
+        assertEquals(poolSize, connections.availablePermits()); // 요청 스레드는 커넥션을 잡지 않았다
+    }
 
+    @Test
+    void getTransactionHistoryFirstPage() {
+        //given
+        Account account = Account.builder().accountNumber("1000000012").build();
+        account.setId(1L);
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
+        given(transactionRepository.findHistory(eq(account), eq(USE), isNull(), any()))
+                .willReturn(Arrays.asList(
+                        historyTransaction(account, 3L, 3),
+                        historyTransaction(account, 2L, 2),
+                        historyTransaction(account, 1L, 1)));
+        //when
+        TransactionHistoryDto history = transactionService.getTransactionHistory(
+                "1000000012", USE, null, null, 2);
+        //then
+        assertEquals(2, history.getTransactions().size()); // 한 건 더 읽은 것은 응답에 넣지 않는다
+        assertEquals("tx3", history.getTransactions().get(0).getTransactionId());
+        assertEquals("tx2", history.getTransactions().get(1).getTransactionId());
+        assertNotNull(history.getNextCursor());
+    }
 
-        given(transactionRepository.save(any()))
-                .willReturn(
-                        Transaction.builder()
-                                .transactionType(CANCEL)
-                                .transactionResultType(F)
-                                .account(account)
-                                .amount(2000L)
-                                .balanceSnapshot(18000L)
-                                .transactionId("abcdefghikl")
-                                .transactedAt(LocalDateTime.now())
-                                .build()
-                );
-
-        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+    @Test
+    void getTransactionHistoryNextPage() {
+        //given
+        Account account = Account.builder().accountNumber("1000000012").build();
+        account.setId(1L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.findHistory(any(), any(), any(), any()))
+                .willReturn(Arrays.asList(
+                        historyTransaction(account, 3L, 3),
+                        historyTransaction(account, 2L, 2)));
+        given(transactionRepository.findHistoryBefore(any(), any(), any(), any(), any(), any()))
+                .willReturn(Collections.singletonList(historyTransaction(account, 1L, 1)));
+        String cursor = transactionService.getTransactionHistory(
+                "1000000012", null, null, null, 1).getNextCursor();
+        ArgumentCaptor<LocalDateTime> transactedAtCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<Long> idCaptor = ArgumentCaptor.forClass(Long.class);
         //when
-        transactionService.saveFailedCancleTransaction("1000000000", 10000L);
+        TransactionHistoryDto history = transactionService.getTransactionHistory(
+                "1000000012", null, null, cursor, 1);
         //then
-        verify(transactionRepository, times(1)).save(captor.capture()); //captor야 캡쳐해
-        assertEquals(F, captor.getValue().getTransactionResultType());
-        assertEquals(CANCEL, captor.getValue().getTransactionType());
-        assertEquals(200000L, captor.getValue().getBalanceSnapshot()); //account 엔티티에 들어있던 값에서 amount를 뺀 만큼 나머지 잔액이 잘 들어 있는지
-        assertEquals(10000L, captor.getValue().getAmount()); // 실제로 서비스에서 저장되는 시점의 값이 들어감
+        verify(transactionRepository).findHistoryBefore(any(), any(), any(),
+                transactedAtCaptor.capture(), idCaptor.capture(), any());
+        assertEquals(LocalDateTime.of(2022, 6, 1, 10, 3), transactedAtCaptor.getValue());
+        assertEquals(3L, idCaptor.getValue()); // 이전 페이지 마지막 거래 다음부터
+        assertEquals("tx1", history.getTransactions().get(0).getTransactionId());
+        assertNull(history.getNextCursor()); // 마지막 페이지
     }
 
     @Test
-    @DisplayName("취소 실패 트랜잭션 저장 성공")
-    void failedSaveFailedCancleTransaction_accountNotFound() {
+    void getTransactionHistory_InvalidCursor() {
         //given
         given(accountRepository.findByAccountNumber(anyString()))
-                .willReturn(Optional.empty());
+                .willReturn(Optional.of(Account.builder().accountNumber("1000000012").build()));
         //when
         AccountException exception = assertThrows(AccountException.class,
-                () -> transactionService.saveFailedCancleTransaction("1000000000", 10000L));
+                () -> transactionService.getTransactionHistory("1000000012", null, null, "not-a-cursor", 20));
         //then
-        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND,exception.getErrorCode());
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
     }
 
     @Test
-    void successQueryTransaction() {
+    void getBalanceAtLatestSnapshot() {
         //given
-        Account account = Account.builder()
-                .accountNumber("123456778")
-                .id(12L)
-                .accountStatus(AccountStatus.IN_USE)
-                .balance(200000L)
-                .build();
+        Account account = Account.builder().accountNumber("1000000012").balance(5000L).build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        Transaction transaction = historyTransaction(account, 2L, 2);
+        transaction.setBalanceSnapshot(7000L);
+        given(transactionRepository.findHistoryBefore(any(), any(), any(), any(), any(), any()))
+                .willReturn(Collections.singletonList(transaction));
+        //when
+        long balance = transactionService.getBalanceAt("1000000012", LocalDateTime.of(2022, 6, 1, 10, 5));
+        //then
+        assertEquals(7000L, balance);
+        verify(transactionRepository).findHistoryBefore(eq(account), isNull(), eq(S),
+                eq(LocalDateTime.of(2022, 6, 1, 10, 5)), eq(Long.MAX_VALUE), any());
+        verify(transactionRepository, never()).findHistoryAfter(any(), any(), any(), any(), any());
+    }
 
-        //과거에 썼던 내역
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(
-                        Transaction.builder()
-                                .transactionType(USE)
-                                .transactionResultType(S)
-                                .account(account)
-                                .amount(15000L)
-                                .balanceSnapshot(18000L)
-                                .transactionId("usedtransaction")
-                                .transactedAt(LocalDateTime.now().minusYears(1).minusDays(1))
-                                .build()
-                ));
+    @Test
+    void getBalanceAtBeforeFirstTransaction() {
+        //given
+        Account account = Account.builder().accountNumber("1000000012").balance(5000L).build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        Transaction transaction = historyTransaction(account, 1L, 3);
+        transaction.setBalanceSnapshot(9000L);
+        given(transactionRepository.findHistoryBefore(any(), any(), any(), any(), any(), any()))
+                .willReturn(Collections.emptyList());
+        given(transactionRepository.findHistoryAfter(any(), any(), any(), any(), any()))
+                .willReturn(Collections.singletonList(transaction));
         //when
-        TransactionDto transactionDto = transactionService.queryTransaction("abcd");
+        long balance = transactionService.getBalanceAt("1000000012", LocalDateTime.of(2022, 6, 1, 10, 1));
         //then
-        assertEquals(USE, transactionDto.getTransactionType());
-        assertEquals(S, transactionDto.getTransactionResultType());
-        assertEquals("123456778", transactionDto.getAccountNumber());
-        assertEquals("usedtransaction", transactionDto.getTransactionId());
-        assertEquals(18000L, transactionDto.getBalanceSnapshot());
+        assertEquals(10000L, balance); // 첫 거래(1000원 사용) 전의 잔액
     }
 
     @Test
-    @DisplayName("원 사용 거래 없음 - 거래 조회 실패")
-    void failedQueryTransaction_TransactionNotFound() {
+    void getBalanceAtWithoutTransaction() {
         //given
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.empty());
+        Account account = Account.builder().accountNumber("1000000012").balance(5000L).build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.findHistoryBefore(any(), any(), any(), any(), any(), any()))
+                .willReturn(Collections.emptyList());
+        given(transactionRepository.findHistoryAfter(any(), any(), any(), any(), any()))
+                .willReturn(Collections.emptyList());
         //when
-        TransactionException exception = assertThrows(TransactionException.class,
-                ()->transactionService.queryTransaction("abcd"));
+        long balance = transactionService.getBalanceAt("1000000012", LocalDateTime.now());
         //then
-        assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
+        assertEquals(5000L, balance);
     }
 
-}
\ No newline at end of file
+    @Test
+    void getBalanceAt_BeforeRegistered() {
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountNumber("1000000012")
+                        .registeredAt(LocalDateTime.of(2022, 6, 1, 0, 0))
+                        .build()));
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.getBalanceAt("1000000012", LocalDateTime.of(2022, 5, 31, 0, 0)));
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    private Transaction historyTransaction(Account account, Long id, int minute) {
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1000L)
+                .transactionId("tx" + id)
+                .transactedAt(LocalDateTime.of(2022, 6, 1, 10, minute))
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+}